@@ -0,0 +1,12 @@
+#!/bin/sh
+# Launches dependency-dump, using AppCDS archive written by -trainCds when present.
+
+DIR=$(dirname "$0")
+JAR=${DEPENDENCY_DUMP_JAR:-"$DIR/target/dependency-dump-1.0-SNAPSHOT-jar-with-dependencies.jar"}
+JAVA=${JAVA_HOME:+"$JAVA_HOME/bin/"}java
+
+if [ -f "$JAR.jsa" ]; then
+    CDS_OPTS="-XX:SharedArchiveFile=$JAR.jsa -Xshare:auto"
+fi
+
+exec "$JAVA" $CDS_OPTS $JAVA_OPTS -jar "$JAR" "$@"
@@ -0,0 +1,141 @@
+package com.oracle.ee4j.dependencydump;
+
+import org.apache.commons.cli.*;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * End-to-end benchmark running full {@link Runner} executions against an embedded {@link RepositoryServer}.
+ * Every iteration starts with an empty local repository unless -warmLocalRepo is set,
+ * so all artifacts are downloaded through the HTTP transporter.
+ */
+public class Benchmark {
+
+    private static final String projectParam = "project";
+    private static final String serveRepoParam = "serveRepo";
+    private static final String iterationsParam = "iterations";
+    private static final String latencyParam = "latency";
+    private static final String bandwidthParam = "bandwidth";
+    private static final String errorRateParam = "errorRate";
+    private static final String viaProxyParam = "viaProxy";
+    private static final String warmLocalRepoParam = "warmLocalRepo";
+    private static final String includeScopesParam = "includeScopes";
+    private static final String printTree = "tree";
+
+    // Host which is never resolved, requests reach the embedded server only through the proxy.
+    private static final String proxiedRepositoryUrl = "http://repository.invalid/";
+
+    private static final Logger logger = Logger.getLogger("benchmark");
+    private static final Logger printerLogger = Logger.getLogger("printer");
+
+    public static void main(final String[] args) throws Exception {
+        System.setProperty("java.util.logging.SimpleFormatter.format", "%5$s%6$s%n");
+
+        Options options = new Options();
+        options.addOption(new Option(projectParam, true, "Filesystem path to project (required)"));
+        options.addOption(new Option(serveRepoParam, true, "Filesystem path to maven repository served by embedded server (required)"));
+        options.addOption(new Option(iterationsParam, true, "Number of measured runs. Default 3."));
+        options.addOption(new Option(latencyParam, true, "Latency added to every request in milliseconds. Default 0."));
+        options.addOption(new Option(bandwidthParam, true, "Bandwidth limit of every response in bytes per second. Default unlimited."));
+        options.addOption(new Option(errorRateParam, true, "Ratio of requests failed with 503, between 0 and 1. Default 0."));
+        options.addOption(new Option(viaProxyParam, false, "Access embedded server as http proxy configured by http.proxyHost/http.proxyPort. Default false."));
+        options.addOption(new Option(warmLocalRepoParam, false, "Keep local repository between iterations. Default false."));
+        options.addOption(new Option(includeScopesParam, true, "Include only dependencies with specified scopes. Separated by comma."));
+        options.addOption(new Option(printTree, false, "Print dependencies as a tree. Default false."));
+
+        CommandLine line;
+        try {
+            line = new BasicParser().parse(options, args);
+            if (!line.hasOption(projectParam) || !line.hasOption(serveRepoParam)) {
+                new HelpFormatter().printHelp("benchmark", options);
+                return;
+            }
+        } catch (ParseException exp) {
+            System.err.println("Parsing failed.  Reason: " + exp.getMessage());
+            return;
+        }
+
+        int iterations = Integer.parseInt(line.getOptionValue(iterationsParam, "3"));
+
+        RepositoryServer server = new RepositoryServer(new File(line.getOptionValue(serveRepoParam)));
+        server.setLatencyMillis(Long.parseLong(line.getOptionValue(latencyParam, "0")));
+        server.setBandwidthBytesPerSecond(Long.parseLong(line.getOptionValue(bandwidthParam, "0")));
+        server.setErrorRate(Double.parseDouble(line.getOptionValue(errorRateParam, "0")));
+        server.start();
+
+        printerLogger.setLevel(Level.WARNING);
+
+        File localRepo = null;
+        List<Long> wallTimes = new ArrayList<>();
+        try {
+            if (line.hasOption(viaProxyParam)) {
+                System.setProperty("http.proxyHost", "localhost");
+                System.setProperty("http.proxyPort", String.valueOf(server.getPort()));
+            }
+
+            for (int i = 1; i <= iterations; i++) {
+                if (localRepo == null || !line.hasOption(warmLocalRepoParam)) {
+                    deleteLocalRepo(localRepo);
+                    localRepo = Files.createTempDirectory("dependency-dump-benchmark").toFile();
+                }
+
+                Builder builder = new Builder();
+                builder.setProjectPath(line.getOptionValue(projectParam));
+                builder.setLocalRepo(localRepo.getAbsolutePath());
+                builder.setPrintTree(line.hasOption(printTree));
+                if (line.hasOption(includeScopesParam)) {
+                    builder.setScopes(line.getOptionValue(includeScopesParam).split(","));
+                }
+                if (line.hasOption(viaProxyParam)) {
+                    String proxyPort = Main.getProxyPort();
+                    builder.setProxyHost(Main.getProxyHost());
+                    builder.setProxyPort(proxyPort != null ? Integer.parseInt(proxyPort) : null);
+                    builder.setRepositories(new String[]{proxiedRepositoryUrl});
+                } else {
+                    builder.setRepositories(new String[]{server.getUrl()});
+                }
+                Runner runner = builder.buildRunner();
+
+                server.resetStatistics();
+                long started = System.nanoTime();
+                runner.run();
+                long wallMillis = (System.nanoTime() - started) / 1_000_000;
+                wallTimes.add(wallMillis);
+
+                report("Iteration " + i, wallMillis, server);
+            }
+        } finally {
+            server.stop();
+            deleteLocalRepo(localRepo);
+        }
+
+        long min = wallTimes.stream().mapToLong(Long::longValue).min().orElse(0);
+        double avg = wallTimes.stream().mapToLong(Long::longValue).average().orElse(0);
+        logger.info(String.format("Wall time min: %d ms, avg: %.1f ms over %d iterations", min, avg, wallTimes.size()));
+    }
+
+    private static void report(String label, long wallMillis, RepositoryServer server) {
+        double seconds = Math.max(wallMillis, 1) / 1000d;
+        logger.info(String.format("%s: wall time %d ms, requests %d (not found %d, injected errors %d), bytes %d, throughput %.1f req/s %.1f KB/s",
+                label, wallMillis, server.getRequests(), server.getNotFound(), server.getInjectedErrors(), server.getBytesSent(),
+                server.getRequests() / seconds, server.getBytesSent() / 1024d / seconds));
+    }
+
+    private static void deleteLocalRepo(File localRepo) {
+        if (localRepo == null) {
+            return;
+        }
+        try {
+            FileUtils.deleteDirectory(localRepo);
+        } catch (IOException e) {
+            logger.warning("Cannot delete " + localRepo + ": " + e.getMessage());
+        }
+    }
+}
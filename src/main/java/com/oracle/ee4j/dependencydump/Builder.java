@@ -2,20 +2,34 @@ package com.oracle.ee4j.dependencydump;
 
 import org.apache.maven.model.resolution.ModelResolver;
 
+import java.io.File;
 import java.util.logging.Logger;
 
 public class Builder {
 
     private final static Logger logger = Logger.getLogger("builder");
 
+    private static final String checksumCacheName = ".dependency-dump-checksums";
+
     private boolean printTree;
     private boolean includeLicense;
+    private boolean includeChecksums;
+    private boolean reportConflicts;
+    private String saveSnapshot;
+    private Integer maxFlatMemory;
+    private String diffSnapshot;
     private String[] scopes;
     private String[] excludes;
     private String localRepo;
     private String projectPath;
     private String proxyHost;
     private Integer proxyPort;
+    private String[] repositories;
+    private Integer shardIndex;
+    private Integer shardCount;
+    private String shardDir;
+    private String runId;
+    private boolean merge;
 
     public Runner buildRunner() {
 
@@ -26,17 +40,44 @@ public class Builder {
         } else {
             repositorySupport = new RepositorySupport(localRepo);
         }
+        if (repositories != null) {
+            logger.info("Using repositories: " + String.join(",", repositories));
+            repositorySupport.setRepositoryUrls(repositories);
+        }
 
 
         DependencyCollector collector = new DependencyCollector(repositorySupport);
         collector.setScopes(scopes);
         collector.setExcludes(excludes);
+        if (shardIndex != null && shardCount != null) {
+            logger.info("Collecting shard " + shardIndex + " of " + shardCount + " into " + shardDir);
+            collector.setShard(shardIndex, shardCount, runId);
+        }
 
         Printer printer = new Printer(collector);
         printer.setIncludeLicense(includeLicense);
         printer.setPrintTree(printTree);
+        printer.setReportConflicts(reportConflicts);
+        if (maxFlatMemory != null) {
+            printer.setMaxFlatMemory(maxFlatMemory * 1024L * 1024L);
+        }
+        if (saveSnapshot != null) {
+            printer.setSaveSnapshotFile(new File(saveSnapshot));
+        }
+        if (diffSnapshot != null) {
+            printer.setDiffSnapshotFile(new File(diffSnapshot));
+        }
+        if (includeChecksums) {
+            printer.setChecksumCalculator(new ChecksumCalculator(new File(localRepo, checksumCacheName)));
+        }
 
-        return new Runner(projectPath, collector, printer);
+        Runner runner = new Runner(projectPath, collector, printer);
+        if (shardDir != null) {
+            runner.setShardDir(new File(shardDir));
+        }
+        runner.setRunId(runId);
+        runner.setMerge(merge);
+        return runner;
     }
 
     public void setPrintTree(boolean printTree) {
@@ -47,6 +88,26 @@ public class Builder {
         this.includeLicense = includeLicense;
     }
 
+    public void setIncludeChecksums(boolean includeChecksums) {
+        this.includeChecksums = includeChecksums;
+    }
+
+    public void setReportConflicts(boolean reportConflicts) {
+        this.reportConflicts = reportConflicts;
+    }
+
+    public void setMaxFlatMemory(Integer maxFlatMemory) {
+        this.maxFlatMemory = maxFlatMemory;
+    }
+
+    public void setSaveSnapshot(String saveSnapshot) {
+        this.saveSnapshot = saveSnapshot;
+    }
+
+    public void setDiffSnapshot(String diffSnapshot) {
+        this.diffSnapshot = diffSnapshot;
+    }
+
     public void setScopes(String[] scopes) {
         this.scopes = scopes;
     }
@@ -70,4 +131,25 @@ public class Builder {
     public void setProxyPort(Integer proxyPort) {
         this.proxyPort = proxyPort;
     }
+
+    public void setRepositories(String[] repositories) {
+        this.repositories = repositories;
+    }
+
+    public void setShard(Integer shardIndex, Integer shardCount) {
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+    }
+
+    public void setShardDir(String shardDir) {
+        this.shardDir = shardDir;
+    }
+
+    public void setRunId(String runId) {
+        this.runId = runId;
+    }
+
+    public void setMerge(boolean merge) {
+        this.merge = merge;
+    }
 }
@@ -0,0 +1,98 @@
+package com.oracle.ee4j.dependencydump;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * AppCDS archive of classes loaded during a regular run, see -trainCds.
+ * The archive is written next to the application jar as &lt;jar&gt;.jsa,
+ * where dependency-dump.sh launcher picks it up.
+ */
+class CdsArchive {
+
+    private static final Logger logger = Logger.getLogger("cds");
+
+    private static final String archiveSuffix = ".jsa";
+
+    static File getArchiveFile() {
+        File location;
+        try {
+            location = new File(Main.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+        if (location.isFile()) {
+            return new File(location.getPath() + archiveSuffix);
+        }
+        return new File(location.getParentFile(), "dependency-dump" + archiveSuffix);
+    }
+
+    /**
+     * Runs the dump with given arguments in a child JVM which dumps loaded classes to the archive on exit.
+     */
+    static void train(String[] args) throws IOException, InterruptedException {
+        if (!isDynamicArchiveSupported()) {
+            logger.severe("Training CDS archive requires java 13 or newer, running " + System.getProperty("java.specification.version"));
+            return;
+        }
+        File archive = getArchiveFile();
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable());
+        // archive used by the launcher would be in use while it is written again
+        jvmOptions().stream()
+                .filter(option -> !option.startsWith("-XX:SharedArchiveFile") && !option.startsWith("-Xshare"))
+                .forEach(command::add);
+        command.add("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath());
+        // old class file versions of some dependencies can't be archived, don't report each of them
+        command.add("-Xlog:cds=error");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+        command.addAll(Arrays.asList(args));
+
+        logger.info("Training CDS archive " + archive.getAbsolutePath());
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || !archive.isFile()) {
+            logger.severe("Training run failed with exit code " + exitCode + ", CDS archive was not written.");
+            return;
+        }
+        logger.info("CDS archive written: " + archive.getAbsolutePath());
+    }
+
+    static String javaExecutable() {
+        return System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    }
+
+    /**
+     * JVM options of this process for child JVMs, such as heap size given in JAVA_OPTS.
+     * Debugger agents are left out, their port can be listened on by one process only.
+     */
+    static List<String> jvmOptions() {
+        List<String> result = new ArrayList<>();
+        for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!option.startsWith("-agentlib:jdwp") && !option.startsWith("-Xrunjdwp") && !option.equals("-Xdebug")) {
+                result.add(option);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isDynamicArchiveSupported() {
+        String version = System.getProperty("java.specification.version");
+        if (version.startsWith("1.")) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(version) >= 13;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.oracle.ee4j.dependencydump;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Computes SHA-256 digests of resolved artifact files on a worker pool.
+ * Digests are cached by path, size and modification time in a properties file,
+ * so files unchanged since the previous run are not read again. The cache file is written on {@link #close()}.
+ */
+public class ChecksumCalculator implements Closeable {
+
+    private static final Logger logger = Logger.getLogger("checksums");
+
+    private static final String algorithm = "SHA-256";
+
+    // Files above this size are hashed through a memory mapped buffer instead of a stream.
+    private static final long mappedThreshold = 1024 * 1024;
+    private static final long mappedChunkSize = 64 * 1024 * 1024;
+    private static final int streamBufferSize = 64 * 1024;
+
+    private final File cacheFile;
+    private final int threads;
+    private final Map<String, Checksum> cache = new ConcurrentHashMap<>();
+    private volatile boolean cacheModified;
+    private ExecutorService executor;
+
+    public ChecksumCalculator(File cacheFile) {
+        this(cacheFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ChecksumCalculator(File cacheFile, int threads) {
+        this.cacheFile = cacheFile;
+        this.threads = Math.max(1, threads);
+        loadCache();
+    }
+
+    /**
+     * Hashes all given files in parallel, workers are shared by all calls until {@link #close()}.
+     *
+     * @return checksums keyed by the input file, files which could not be read are omitted
+     */
+    public Map<File, Checksum> computeAll(Collection<File> files) {
+        Set<File> unique = new LinkedHashSet<>(files);
+        Map<File, Checksum> result = new HashMap<>();
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads);
+        }
+        try {
+            Map<File, Future<Checksum>> futures = new LinkedHashMap<>();
+            for (File file : unique) {
+                futures.put(file, executor.submit(() -> compute(file)));
+            }
+            for (Map.Entry<File, Future<Checksum>> entry : futures.entrySet()) {
+                try {
+                    result.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    logger.severe("Cannot compute checksum of " + entry.getKey() + ": " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    /**
+     * Stops workers and stores the cache if any checksum was computed.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        storeCache();
+    }
+
+    public Checksum compute(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        Checksum cached = cache.get(path);
+        if (cached != null && cached.getSize() == size && cached.getLastModified() == lastModified) {
+            return cached;
+        }
+
+        Checksum checksum = new Checksum(size, lastModified, digest(file, size));
+        cache.put(path, checksum);
+        cacheModified = true;
+        return checksum;
+    }
+
+    private String digest(File file, long size) throws IOException {
+        MessageDigest digest = newDigest();
+        if (size > mappedThreshold) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                for (long position = 0; position < size; position += mappedChunkSize) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(mappedChunkSize, size - position));
+                    digest.update(buffer);
+                }
+            }
+        } else {
+            byte[] buffer = new byte[streamBufferSize];
+            try (InputStream in = new FileInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder str = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            str.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return str.toString();
+    }
+
+    private void loadCache() {
+        if (cacheFile == null || !cacheFile.exists()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(cacheFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warning("Cannot read checksum cache " + cacheFile + ": " + e.getMessage());
+            return;
+        }
+        for (String path : properties.stringPropertyNames()) {
+            String[] parts = properties.getProperty(path).split(":");
+            if (parts.length != 3) {
+                continue;
+            }
+            try {
+                cache.put(path, new Checksum(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2]));
+            } catch (NumberFormatException e) {
+                //stale entry, will be recomputed
+            }
+        }
+    }
+
+    private void storeCache() {
+        if (cacheFile == null || !cacheModified) {
+            return;
+        }
+        Properties properties = new Properties();
+        for (Map.Entry<String, Checksum> entry : cache.entrySet()) {
+            Checksum checksum = entry.getValue();
+            properties.setProperty(entry.getKey(), checksum.getSize() + ":" + checksum.getLastModified() + ":" + checksum.getSha256());
+        }
+        try (OutputStream out = new FileOutputStream(cacheFile)) {
+            properties.store(out, "dependency-dump artifact checksums");
+            cacheModified = false;
+        } catch (IOException e) {
+            logger.warning("Cannot write checksum cache " + cacheFile + ": " + e.getMessage());
+        }
+    }
+
+    public static final class Checksum {
+        private final long size;
+        private final long lastModified;
+        private final String sha256;
+
+        public Checksum(long size, long lastModified, String sha256) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+    }
+}
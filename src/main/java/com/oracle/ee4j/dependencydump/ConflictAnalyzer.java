@@ -0,0 +1,161 @@
+package com.oracle.ee4j.dependencydump;
+
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.graph.DependencyNode;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+
+/**
+ * Groups artifacts of all dependency graphs by groupId:artifactId in a single pass
+ * and reports those present in more than one version.
+ * <p>
+ * For every version the first path found from each requesting module is kept. Mediated version
+ * follows maven within a module: a direct dependency wins, then the version managed by dependencyManagement
+ * of the module, otherwise "nearest wins": the smallest depth, first declaration on a tie.
+ * <p>
+ * Graphs are already resolved by maven, which keeps only the winning version of an artifact within the graph
+ * of a single direct dependency. Only versions differing between direct dependencies or modules are seen.
+ */
+class ConflictAnalyzer {
+
+    private final Map<String, Map<String, Map<String, String>>> versions = new TreeMap<>();
+    private final Map<String, Map<String, Candidate>> mediated = new HashMap<>();
+    private final Map<String, Map<String, String>> managedVersions = new HashMap<>();
+    private final BiPredicate<DependencyNode, DependencyNode> excluded;
+
+    /**
+     * @param excluded tests whether child of given parent node was excluded by the declaring dependency
+     */
+    ConflictAnalyzer(BiPredicate<DependencyNode, DependencyNode> excluded) {
+        this.excluded = excluded;
+    }
+
+    /**
+     * @param managedVersions versions managed by the module keyed by groupId:artifactId
+     */
+    void addRoot(String module, Map<String, String> managedVersions, DependencyNode root) {
+        this.managedVersions.put(module, managedVersions);
+        // graphs of separate roots never share nodes, so visited nodes of a root are not kept
+        visit(module, root, new ArrayDeque<>(), Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private void visit(String module, DependencyNode node, Deque<String> path, Set<DependencyNode> visited) {
+        if (node.getDependency() != null && node.getDependency().isOptional()) {
+            return;
+        }
+        Artifact artifact = node.getArtifact();
+        path.addLast(Util.toArtifactId(artifact));
+        record(module, artifact, path);
+        // nodes may be shared within the graph, every node is expanded once
+        if (visited.add(node)) {
+            for (DependencyNode child : node.getChildren()) {
+                if (!excluded.test(node, child)) {
+                    visit(module, child, path, visited);
+                }
+            }
+        }
+        path.removeLast();
+    }
+
+    private void record(String module, Artifact artifact, Deque<String> path) {
+        String key = artifact.getGroupId() + ":" + artifact.getArtifactId();
+        String version = artifact.getBaseVersion();
+
+        Map<String, String> requests = versions.computeIfAbsent(key, k -> new TreeMap<>(ConflictAnalyzer::compareVersions))
+                .computeIfAbsent(version, v -> new LinkedHashMap<>());
+        if (!requests.containsKey(module)) {
+            requests.put(module, String.join(" -> ", path));
+        }
+
+        Map<String, Candidate> moduleCandidates = mediated.computeIfAbsent(key, k -> new LinkedHashMap<>());
+        Candidate candidate = moduleCandidates.get(module);
+        if (candidate == null || path.size() < candidate.depth) {
+            moduleCandidates.put(module, new Candidate(version, path.size()));
+        }
+    }
+
+    private static int compareVersions(String version1, String version2) {
+        int result = new ComparableVersion(version1).compareTo(new ComparableVersion(version2));
+        // equivalent versions such as 1.0 and 1.0.Final are still different artifacts
+        return result != 0 ? result : version1.compareTo(version2);
+    }
+
+    /**
+     * Conflicting artifacts sorted by groupId:artifactId.
+     */
+    List<Conflict> getConflicts() {
+        List<Conflict> conflicts = new ArrayList<>();
+        versions.forEach((key, versionRequests) -> {
+            if (versionRequests.size() > 1) {
+                Map<String, String> mediatedVersions = new LinkedHashMap<>();
+                Set<String> managedModules = new HashSet<>();
+                mediated.get(key).forEach((module, candidate) -> {
+                    String managed = managedVersions.getOrDefault(module, Collections.emptyMap()).get(key);
+                    // dependency declared by the module itself is not overridden by its dependency management
+                    if (managed != null && candidate.depth > 1) {
+                        mediatedVersions.put(module, managed);
+                        managedModules.add(module);
+                    } else {
+                        mediatedVersions.put(module, candidate.version);
+                    }
+                });
+                conflicts.add(new Conflict(key, versionRequests, mediatedVersions, managedModules));
+            }
+        });
+        return conflicts;
+    }
+
+    private static class Candidate {
+        private final String version;
+        private final int depth;
+
+        private Candidate(String version, int depth) {
+            this.version = version;
+            this.depth = depth;
+        }
+    }
+
+    static class Conflict {
+        private final String key;
+        private final Map<String, Map<String, String>> versions;
+        private final Map<String, String> mediatedVersions;
+        private final Set<String> managedModules;
+
+        private Conflict(String key, Map<String, Map<String, String>> versions, Map<String, String> mediatedVersions, Set<String> managedModules) {
+            this.key = key;
+            this.versions = versions;
+            this.mediatedVersions = mediatedVersions;
+            this.managedModules = managedModules;
+        }
+
+        /**
+         * groupId:artifactId
+         */
+        String getKey() {
+            return key;
+        }
+
+        /**
+         * Requesting modules with the first path for every version.
+         */
+        Map<String, Map<String, String>> getVersions() {
+            return versions;
+        }
+
+        /**
+         * Version selected by mediation in every module using the artifact.
+         */
+        Map<String, String> getMediatedVersions() {
+            return mediatedVersions;
+        }
+
+        /**
+         * Whether the mediated version of the module comes from its dependency management.
+         */
+        boolean isManaged(String module) {
+            return managedModules.contains(module);
+        }
+    }
+}
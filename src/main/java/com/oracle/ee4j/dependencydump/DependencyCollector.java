@@ -4,7 +4,9 @@ import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.building.*;
 import org.apache.maven.model.resolution.ModelResolver;
+import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.resolution.ArtifactResult;
 import org.eclipse.aether.resolution.DependencyResolutionException;
 import org.eclipse.aether.resolution.DependencyResult;
 
@@ -22,10 +24,20 @@ public class DependencyCollector {
     private Map<String, Dependency> directDependencies = new TreeMap<>();
     private final List<DependencyNode> transitiveDependencies = new ArrayList<>();
     private final Set<ProjectArtifact> projectArtifacts = new HashSet<>();
+    private final Map<String, File> artifactFiles = new HashMap<>();
+    // roots read by merge are not referenced once printed
+    private final Map<DependencyNode, ProjectArtifact> rootModules = new WeakHashMap<>();
+    private final Map<ProjectArtifact, Map<String, String>> managedVersions = new HashMap<>();
 
     private String[] scopes;
     private String[] excludes;
 
+    private ShardResult shardResult;
+    private int shardIndex;
+    private int shardCount;
+    private int moduleCount;
+    private List<ShardResult> mergedShards;
+
     private final ModelResolver modelResolver;
 
     public DependencyCollector(RepositorySupport repositorySupport) {
@@ -37,7 +49,11 @@ public class DependencyCollector {
 
         Model model = loadLocalPomModel(projectDir);
 
-        projectArtifacts.add(new ProjectArtifact(model.getGroupId(), model.getArtifactId(), model.getVersion()));
+        ProjectArtifact projectArtifact = new ProjectArtifact(model.getGroupId(), model.getArtifactId(), model.getVersion());
+        projectArtifacts.add(projectArtifact);
+        if (shardResult != null) {
+            shardResult.addProjectArtifact(projectArtifact);
+        }
 
         if (model.getPackaging().equals("pom")) {
             for (String module : model.getModules()) {
@@ -46,6 +62,17 @@ public class DependencyCollector {
             }
         }
 
+        // modules are numbered in the order their dependencies are resolved, same in every shard
+        int moduleIndex = moduleCount++;
+        ShardResult.ModuleResult moduleResult = null;
+        if (shardResult != null) {
+            if (moduleIndex % shardCount != shardIndex) {
+                return;
+            }
+            moduleResult = shardResult.addModule(moduleIndex, projectArtifact);
+        }
+        addManagedVersions(moduleResult, projectArtifact, model);
+
         List<Dependency> dependencies = model.getDependencies();
         for (org.apache.maven.model.Dependency dependency : dependencies) {
 
@@ -53,20 +80,83 @@ public class DependencyCollector {
                 continue;
             }
 
-            String artifactId = Util.toArtifactId(dependency);
-
-            directDependencies.put(artifactId, dependency);
+            addDirectDependency(moduleResult, dependency);
 
             DependencyResolver dependencyResolver = new DependencyResolver(repositorySupport);
             try {
                 DependencyResult dependencyResolved = dependencyResolver.resolve(dependency, scopes);
-                transitiveDependencies.add(dependencyResolved.getRoot());
+                addTransitiveDependency(moduleResult, projectArtifact, dependencyResolved.getRoot());
+                addArtifactFiles(moduleResult, dependencyResolved);
                 logger.info("Resolved: "+dependency.getGroupId()+":"+dependency.getArtifactId()
                         +":"+dependency.getVersion()+":"+dependency.getType());
             } catch (DependencyResolutionException e) {
                 logger.severe(e.getMessage());
                 if (e.getResult().getRoot() != null) {
-                    transitiveDependencies.add(e.getResult().getRoot());
+                    addTransitiveDependency(moduleResult, projectArtifact, e.getResult().getRoot());
+                }
+                addArtifactFiles(moduleResult, e.getResult());
+            }
+        }
+    }
+
+    /**
+     * Combines partial results of all shards in module order, as if collected by {@link #parsePom(String)}.
+     * Transitive dependencies are not loaded, they are read from shard files module by module when iterated.
+     */
+    public void merge(List<ShardResult> shardResults) {
+        mergedShards = shardResults;
+        List<ShardResult.ModuleResult> modules = new ArrayList<>();
+        for (ShardResult shard : shardResults) {
+            projectArtifacts.addAll(shard.getProjectArtifacts());
+            modules.addAll(shard.getModules());
+        }
+        Collections.sort(modules);
+        for (ShardResult.ModuleResult module : modules) {
+            for (Dependency dependency : module.getDirectDependencies()) {
+                directDependencies.put(Util.toArtifactId(dependency), dependency);
+            }
+            managedVersions.put(module.getProjectArtifact(), module.getManagedVersions());
+            artifactFiles.putAll(module.getArtifactFiles());
+        }
+    }
+
+    // when collecting a shard results are kept only in serializable form
+    private void addDirectDependency(ShardResult.ModuleResult moduleResult, Dependency dependency) {
+        if (moduleResult != null) {
+            moduleResult.addDirectDependency(dependency);
+        } else {
+            directDependencies.put(Util.toArtifactId(dependency), dependency);
+        }
+    }
+
+    private void addTransitiveDependency(ShardResult.ModuleResult moduleResult, ProjectArtifact module, DependencyNode root) {
+        if (moduleResult != null) {
+            moduleResult.addTransitiveDependency(root);
+        } else {
+            transitiveDependencies.add(root);
+            rootModules.put(root, module);
+        }
+    }
+
+    // effective model contains dependency management of parents and imported BOMs
+    private void addManagedVersions(ShardResult.ModuleResult moduleResult, ProjectArtifact module, Model model) {
+        Map<String, String> versions = moduleResult != null ? moduleResult.getManagedVersions()
+                : managedVersions.computeIfAbsent(module, m -> new HashMap<>());
+        if (model.getDependencyManagement() != null) {
+            for (Dependency managed : model.getDependencyManagement().getDependencies()) {
+                versions.put(managed.getGroupId() + ":" + managed.getArtifactId(), managed.getVersion());
+            }
+        }
+    }
+
+    private void addArtifactFiles(ShardResult.ModuleResult moduleResult, DependencyResult dependencyResult) {
+        for (ArtifactResult artifactResult : dependencyResult.getArtifactResults()) {
+            Artifact artifact = artifactResult.getArtifact();
+            if (artifact != null && artifact.getFile() != null) {
+                if (moduleResult != null) {
+                    moduleResult.addArtifactFile(Util.toArtifactFileKey(artifact), artifact.getFile());
+                } else {
+                    artifactFiles.put(Util.toArtifactFileKey(artifact), artifact.getFile());
                 }
             }
         }
@@ -78,6 +168,9 @@ public class DependencyCollector {
         if (!pomFile.exists()) {
             throw new IllegalStateException("Pom file not exists: " + pomFile.getAbsolutePath());
         }
+        if (shardResult != null) {
+            shardResult.addProjectFile(pomFile);
+        }
 
         final DefaultModelBuildingRequest modelBuildingRequest = new DefaultModelBuildingRequest()
                 .setSystemProperties(System.getProperties()).setModelResolver(modelResolver).setPomFile(pomFile);
@@ -135,12 +228,63 @@ public class DependencyCollector {
         this.scopes = scopes;
     }
 
+    /**
+     * Resolves dependencies of every shardCount-th module only, starting at shardIndex.
+     *
+     * @param runId identifier of the run checked by merge, null to identify the run by project POMs and options
+     */
+    public void setShard(int shardIndex, int shardCount, String runId) {
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.shardResult = new ShardResult(shardIndex, shardCount, runId);
+    }
+
+    public void writeShardResult(File shardDir) {
+        shardResult.addOption("scopes", scopes);
+        shardResult.addOption("excludes", excludes);
+        shardResult.write(shardDir);
+        logger.info("Shard result of run " + shardResult.getRunId() + " written to " + shardDir.getAbsolutePath());
+    }
+
+    public ShardResult getShardResult() {
+        return shardResult;
+    }
+
     public Map<String, Dependency> getDirectDependencies() {
         return directDependencies;
     }
 
-    public List<DependencyNode> getTransitiveDependencies() {
-        return transitiveDependencies;
+    /**
+     * Roots of resolved transitive dependencies in module order. After {@link #merge(List)} every iteration
+     * reads them from shard files again, holding graphs of a single module in memory.
+     */
+    public Iterable<DependencyNode> getTransitiveDependencies() {
+        if (mergedShards == null) {
+            return transitiveDependencies;
+        }
+        return () -> new MergedRootIterator(ShardResult.readModules(mergedShards));
+    }
+
+    /**
+     * Files of resolved artifacts keyed by {@link Util#toArtifactFileKey(Artifact)}.
+     */
+    public Map<String, File> getArtifactFiles() {
+        return artifactFiles;
+    }
+
+    /**
+     * Module declaring the direct dependency resolved as given root of transitive dependencies.
+     */
+    public ProjectArtifact getModule(DependencyNode root) {
+        return rootModules.get(root);
+    }
+
+    /**
+     * Versions managed by dependencyManagement of the module keyed by groupId:artifactId.
+     */
+    public Map<String, String> getManagedVersions(ProjectArtifact module) {
+        Map<String, String> versions = managedVersions.get(module);
+        return versions != null ? versions : Collections.emptyMap();
     }
 
     public Set<ProjectArtifact> getProjectArtifacts() {
@@ -158,4 +302,34 @@ public class DependencyCollector {
     public ModelResolver getModelResolver() {
         return modelResolver;
     }
+
+    private class MergedRootIterator implements Iterator<DependencyNode> {
+        private final Iterator<ShardResult.ModuleResult> modules;
+        private Iterator<DependencyNode> roots = Collections.emptyIterator();
+
+        private MergedRootIterator(Iterator<ShardResult.ModuleResult> modules) {
+            this.modules = modules;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!roots.hasNext() && modules.hasNext()) {
+                ShardResult.ModuleResult module = modules.next();
+                List<DependencyNode> moduleRoots = module.getTransitiveDependencies();
+                for (DependencyNode root : moduleRoots) {
+                    rootModules.put(root, module.getProjectArtifact());
+                }
+                roots = moduleRoots.iterator();
+            }
+            return roots.hasNext();
+        }
+
+        @Override
+        public DependencyNode next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return roots.next();
+        }
+    }
 }
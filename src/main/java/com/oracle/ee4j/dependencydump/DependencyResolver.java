@@ -1,7 +1,6 @@
 package com.oracle.ee4j.dependencydump;
 
 import org.eclipse.aether.artifact.Artifact;
-import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.collection.CollectRequest;
 import org.eclipse.aether.graph.Dependency;
 import org.eclipse.aether.graph.DependencyFilter;
@@ -26,7 +25,7 @@ public class DependencyResolver {
     }
 
     public DependencyResult resolve(org.apache.maven.model.Dependency dependency, String[] scopes) throws DependencyResolutionException {
-        Artifact artifact = new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getClassifier(), dependency.getType(), dependency.getVersion());
+        Artifact artifact = Util.toArtifact(dependency);
 
         CollectRequest collectRequest = new CollectRequest(new Dependency(artifact, dependency.getScope()), repositorySupport.getRepositories());
         List<String> dependencyScopes = scopes != null ? Arrays.asList(scopes)
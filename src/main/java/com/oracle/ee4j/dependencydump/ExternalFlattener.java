@@ -0,0 +1,406 @@
+package com.oracle.ee4j.dependencydump;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DependencyNode;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Flattens dependency graphs within a memory budget, see -maxFlatMemory.
+ * Deduplicated records are buffered until the budget is hit, then written sorted to a temporary run file.
+ * Runs are combined by a k-way merge streaming records in the order of flat output. When there are more runs
+ * than the merge fan-in, groups of them are first merged into longer runs, so the number of open files is bounded.
+ * <p>
+ * Same artifact is resolved as in {@link Printer} flattening: the last root node wins, otherwise the first node found.
+ * Keys of all added records are kept as 64-bit fingerprints, 16 bytes per artifact outside of the budget, so subtrees
+ * of artifacts already spilled to a run are skipped as in memory. Root nodes of a spilled artifact are removed by the merge.
+ */
+class ExternalFlattener implements Closeable {
+
+    private static final Logger logger = Logger.getLogger("printer");
+
+    // rough heap footprint of a buffered record without its strings
+    private static final long recordOverhead = 160;
+
+    private static final int defaultMaxFanIn = 64;
+
+    private final long memoryBudget;
+    private final int maxFanIn;
+    private final BiPredicate<DependencyNode, DependencyNode> excluded;
+    private final Map<String, FlatRecord> buffer = new HashMap<>();
+    private final FingerprintSet seen = new FingerprintSet();
+    private final List<File> runs = new ArrayList<>();
+    private long bufferSize;
+    private long sequence;
+
+    /**
+     * @param memoryBudget estimated bytes of buffered records before spilling to a run file
+     * @param excluded tests whether child of given parent node was excluded by the declaring dependency
+     */
+    ExternalFlattener(long memoryBudget, BiPredicate<DependencyNode, DependencyNode> excluded) {
+        this(memoryBudget, excluded, defaultMaxFanIn);
+    }
+
+    /**
+     * @param maxFanIn maximum number of run files merged at once, at least 2
+     */
+    ExternalFlattener(long memoryBudget, BiPredicate<DependencyNode, DependencyNode> excluded, int maxFanIn) {
+        if (maxFanIn < 2) {
+            throw new IllegalArgumentException("Merge fan-in must be at least 2: " + maxFanIn);
+        }
+        this.memoryBudget = memoryBudget;
+        this.excluded = excluded;
+        this.maxFanIn = maxFanIn;
+    }
+
+    void addRoot(DependencyNode root) throws IOException {
+        if (root.getDependency().isOptional()) {
+            return;
+        }
+        add(root, true);
+        flatten(root);
+    }
+
+    private void flatten(DependencyNode node) throws IOException {
+        for (DependencyNode child : node.getChildren()) {
+            if (seen.contains(Util.toArtifactId(child)) || excluded.test(node, child)) {
+                continue;
+            }
+            // optional child is recorded like in Printer flattening, but not expanded
+            add(child, false);
+            if (!child.getDependency().isOptional()) {
+                flatten(child);
+            }
+        }
+    }
+
+    private void add(DependencyNode node, boolean root) throws IOException {
+        FlatRecord record = new FlatRecord(node.getArtifact(), node.getDependency().getScope(), node.getDependency().isOptional(), root, sequence++);
+        seen.add(record.key);
+        FlatRecord previous = buffer.put(record.key, record);
+        if (previous != null) {
+            bufferSize -= previous.estimateSize();
+        }
+        bufferSize += record.estimateSize();
+        if (bufferSize > memoryBudget) {
+            spill();
+        }
+    }
+
+    private void spill() throws IOException {
+        File run = createRun();
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)))) {
+            for (FlatRecord record : sortedBuffer()) {
+                out.writeBoolean(true);
+                record.write(out);
+            }
+            out.writeBoolean(false);
+        }
+        buffer.clear();
+        bufferSize = 0;
+    }
+
+    private static File createRun() throws IOException {
+        File run = Files.createTempFile("dependency-dump-run", ".bin").toFile();
+        run.deleteOnExit();
+        return run;
+    }
+
+    private List<FlatRecord> sortedBuffer() {
+        List<FlatRecord> sorted = new ArrayList<>(buffer.values());
+        sorted.sort(Comparator.comparing(record -> record.key));
+        return sorted;
+    }
+
+    /**
+     * Streams deduplicated records sorted by groupId:artifactId:extension:version.
+     */
+    void forEach(Consumer<FlatRecord> consumer) throws IOException {
+        while (runs.size() > maxFanIn) {
+            logger.fine("Merging " + runs.size() + " spilled runs in groups of " + maxFanIn);
+            List<File> pass = new ArrayList<>(runs);
+            runs.clear();
+            for (int i = 0; i < pass.size(); i += maxFanIn) {
+                List<File> group = pass.subList(i, Math.min(i + maxFanIn, pass.size()));
+                runs.add(group.size() == 1 ? group.get(0) : mergeRuns(group));
+            }
+        }
+        if (!runs.isEmpty()) {
+            logger.fine("Merging " + runs.size() + " spilled runs");
+        }
+        Iterator<FlatRecord> remaining = sortedBuffer().iterator();
+        merge(runs, () -> remaining.hasNext() ? remaining.next() : null, consumer::accept);
+    }
+
+    // deduplicated records of the group are written to a single longer run, files of the group are deleted
+    private File mergeRuns(List<File> group) throws IOException {
+        File run = createRun();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)))) {
+            merge(group, () -> null, record -> {
+                out.writeBoolean(true);
+                record.write(out);
+            });
+            out.writeBoolean(false);
+        }
+        for (File file : group) {
+            if (!file.delete()) {
+                logger.warning("Cannot delete " + file.getAbsolutePath());
+            }
+        }
+        return run;
+    }
+
+    /**
+     * K-way merge of sorted run files and sorted records in memory passing the winning record of every key.
+     */
+    private static void merge(List<File> files, RecordSource memory, RecordSink sink) throws IOException {
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            PriorityQueue<RunReader> queue = new PriorityQueue<>(Comparator.comparing((RunReader reader) -> reader.head.key)
+                    .thenComparingLong(reader -> reader.head.sequence));
+            for (File run : files) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+                RunReader reader = new RunReader(() -> in.readBoolean() ? FlatRecord.read(in) : null, in);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            RunReader memoryReader = new RunReader(memory, null);
+            if (memoryReader.advance()) {
+                queue.add(memoryReader);
+            }
+
+            FlatRecord selected = null;
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                FlatRecord record = reader.head;
+                if (selected == null || !selected.key.equals(record.key)) {
+                    if (selected != null) {
+                        sink.accept(selected);
+                    }
+                    selected = record;
+                } else if (record.wins(selected)) {
+                    selected = record;
+                }
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            if (selected != null) {
+                sink.accept(selected);
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    int getRunCount() {
+        return runs.size();
+    }
+
+    @Override
+    public void close() {
+        for (File run : runs) {
+            if (!run.delete()) {
+                logger.warning("Cannot delete " + run.getAbsolutePath());
+            }
+        }
+        runs.clear();
+        buffer.clear();
+        seen.clear();
+    }
+
+    /**
+     * Open addressing set of 64-bit FNV-1a hashes of artifact keys.
+     */
+    static final class FingerprintSet {
+        private long[] table = new long[1024];
+        private boolean containsZero;
+        private int size;
+
+        void add(String key) {
+            long fingerprint = fingerprint(key);
+            if (fingerprint == 0) {
+                containsZero = true;
+                return;
+            }
+            if ((size + 1) * 2 > table.length) {
+                long[] previous = table;
+                table = new long[previous.length * 2];
+                for (long value : previous) {
+                    if (value != 0) {
+                        table[slot(value)] = value;
+                    }
+                }
+            }
+            int slot = slot(fingerprint);
+            if (table[slot] == 0) {
+                table[slot] = fingerprint;
+                size++;
+            }
+        }
+
+        void clear() {
+            table = new long[1024];
+            containsZero = false;
+            size = 0;
+        }
+
+        boolean contains(String key) {
+            long fingerprint = fingerprint(key);
+            return fingerprint == 0 ? containsZero : table[slot(fingerprint)] == fingerprint;
+        }
+
+        // linear probing, returns slot of the value or the first empty one
+        private int slot(long fingerprint) {
+            int mask = table.length - 1;
+            int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+            while (table[slot] != 0 && table[slot] != fingerprint) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static long fingerprint(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+
+    private interface RecordSource {
+        FlatRecord next() throws IOException;
+    }
+
+    private interface RecordSink {
+        void accept(FlatRecord record) throws IOException;
+    }
+
+    private static class RunReader implements Closeable {
+        private final RecordSource source;
+        private final Closeable stream;
+        private FlatRecord head;
+
+        private RunReader(RecordSource source, Closeable stream) {
+            this.source = source;
+            this.stream = stream;
+        }
+
+        private boolean advance() throws IOException {
+            head = source.next();
+            return head != null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (stream != null) {
+                stream.close();
+            }
+        }
+    }
+
+    static final class FlatRecord {
+        private final String groupId;
+        private final String artifactId;
+        private final String extension;
+        private final String classifier;
+        private final String version;
+        private final String scope;
+        private final boolean optional;
+        private final boolean root;
+        private final long sequence;
+        private final String key;
+
+        private FlatRecord(Artifact artifact, String scope, boolean optional, boolean root, long sequence) {
+            this(artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(), artifact.getClassifier(), artifact.getVersion(),
+                    scope != null ? scope : "", optional, root, sequence);
+        }
+
+        private FlatRecord(String groupId, String artifactId, String extension, String classifier, String version, String scope, boolean optional, boolean root, long sequence) {
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.extension = extension;
+            this.classifier = classifier;
+            this.version = version;
+            this.scope = scope;
+            this.optional = optional;
+            this.root = root;
+            this.sequence = sequence;
+            this.key = groupId + ":" + artifactId + ":" + extension + ":" + version;
+        }
+
+        /**
+         * Root nodes overwrite previous ones, other nodes are added only when not present yet.
+         */
+        private boolean wins(FlatRecord other) {
+            if (root != other.root) {
+                return root;
+            }
+            return root ? sequence > other.sequence : sequence < other.sequence;
+        }
+
+        private long estimateSize() {
+            return recordOverhead + 2L * (key.length() * 2 + classifier.length() + scope.length());
+        }
+
+        private void write(DataOutput out) throws IOException {
+            out.writeUTF(groupId);
+            out.writeUTF(artifactId);
+            out.writeUTF(extension);
+            out.writeUTF(classifier);
+            out.writeUTF(version);
+            out.writeUTF(scope);
+            out.writeBoolean(optional);
+            out.writeBoolean(root);
+            out.writeLong(sequence);
+        }
+
+        private static FlatRecord read(DataInput in) throws IOException {
+            return new FlatRecord(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readBoolean(), in.readBoolean(), in.readLong());
+        }
+
+        String getGroupId() {
+            return groupId;
+        }
+
+        String getArtifactId() {
+            return artifactId;
+        }
+
+        String getVersion() {
+            return version;
+        }
+
+        String getScope() {
+            return scope;
+        }
+
+        Artifact toArtifact() {
+            return new DefaultArtifact(groupId, artifactId, classifier, extension, version);
+        }
+
+        boolean isOptional() {
+            return optional;
+        }
+
+        /**
+         * groupId:artifactId:extension:version, same as {@link Util#toArtifactId(DependencyNode)}
+         */
+        String getKey() {
+            return key;
+        }
+    }
+}
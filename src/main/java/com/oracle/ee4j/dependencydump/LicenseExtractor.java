@@ -0,0 +1,186 @@
+package com.oracle.ee4j.dependencydump;
+
+import org.apache.maven.model.License;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.DefaultModelBuildingRequest;
+import org.apache.maven.model.building.ModelSource;
+import org.apache.maven.model.resolution.ModelResolver;
+import org.apache.maven.model.resolution.UnresolvableModelException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Reads licenses of an artifact streaming only &lt;licenses&gt; and &lt;parent&gt; of its POM,
+ * walking up the parent chain when the POM declares none. Licenses are cached per GAV,
+ * so common parents are read once. POMs using properties in license or parent elements
+ * are resolved by the full model builder.
+ */
+public class LicenseExtractor {
+
+    private static final Logger logger = Logger.getLogger("licenses");
+
+    private final ModelResolver modelResolver;
+    private final XMLInputFactory inputFactory;
+    private final Map<String, List<License>> cache = new ConcurrentHashMap<>();
+
+    public LicenseExtractor(ModelResolver modelResolver) {
+        this.modelResolver = modelResolver;
+        this.inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    public List<License> getLicenses(String groupId, String artifactId, String version) throws UnresolvableModelException {
+        String gav = groupId + ":" + artifactId + ":" + version;
+        List<License> licenses = cache.get(gav);
+        if (licenses != null) {
+            return licenses;
+        }
+
+        ModelSource modelSource = modelResolver.resolveModel(groupId, artifactId, version);
+        PomLicenses pom;
+        try {
+            pom = read(modelSource);
+        } catch (IOException | XMLStreamException e) {
+            logger.fine("Cannot stream " + gav + ", using model builder: " + e.getMessage());
+            pom = null;
+        }
+
+        if (pom == null || pom.interpolationRequired || pom.isParentIncomplete()) {
+            licenses = loadModel(modelSource).getLicenses();
+        } else if (!pom.licenses.isEmpty()) {
+            licenses = pom.licenses;
+        } else if (pom.parentGroupId != null) {
+            licenses = getLicenses(pom.parentGroupId, pom.parentArtifactId, pom.parentVersion);
+        } else {
+            licenses = Collections.emptyList();
+        }
+        cache.put(gav, licenses);
+        return licenses;
+    }
+
+    private PomLicenses read(ModelSource modelSource) throws IOException, XMLStreamException {
+        PomLicenses pom = new PomLicenses();
+        try (InputStream in = modelSource.getInputStream()) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+            try {
+                reader.nextTag();
+                // children of <project>
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "licenses":
+                            readLicenses(reader, pom);
+                            break;
+                        case "parent":
+                            readParent(reader, pom);
+                            break;
+                        default:
+                            skipElement(reader);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return pom;
+    }
+
+    private void readLicenses(XMLStreamReader reader, PomLicenses pom) throws XMLStreamException {
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (!"license".equals(reader.getLocalName())) {
+                skipElement(reader);
+                continue;
+            }
+            License license = new License();
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "name":
+                        license.setName(readText(reader, pom));
+                        break;
+                    case "url":
+                        license.setUrl(readText(reader, pom));
+                        break;
+                    case "distribution":
+                        license.setDistribution(readText(reader, pom));
+                        break;
+                    case "comments":
+                        license.setComments(readText(reader, pom));
+                        break;
+                    default:
+                        skipElement(reader);
+                }
+            }
+            pom.licenses.add(license);
+        }
+    }
+
+    private void readParent(XMLStreamReader reader, PomLicenses pom) throws XMLStreamException {
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "groupId":
+                    pom.parentGroupId = readText(reader, pom);
+                    break;
+                case "artifactId":
+                    pom.parentArtifactId = readText(reader, pom);
+                    break;
+                case "version":
+                    pom.parentVersion = readText(reader, pom);
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+    }
+
+    private String readText(XMLStreamReader reader, PomLicenses pom) throws XMLStreamException {
+        String text = reader.getElementText().trim();
+        if (text.contains("${")) {
+            pom.interpolationRequired = true;
+        }
+        return text;
+    }
+
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private Model loadModel(ModelSource modelSource) {
+
+        final DefaultModelBuildingRequest modelBuildingRequest = new DefaultModelBuildingRequest()
+                .setSystemProperties(System.getProperties()).setModelResolver(modelResolver).setModelSource(modelSource);
+
+        return Util.getModel(modelBuildingRequest);
+    }
+
+    private static class PomLicenses {
+        private final List<License> licenses = new ArrayList<>();
+        private String parentGroupId;
+        private String parentArtifactId;
+        private String parentVersion;
+        private boolean interpolationRequired;
+
+        private boolean isParentIncomplete() {
+            boolean anySet = parentGroupId != null || parentArtifactId != null || parentVersion != null;
+            return anySet && (parentGroupId == null || parentArtifactId == null || parentVersion == null);
+        }
+    }
+}
@@ -2,7 +2,13 @@ package com.oracle.ee4j.dependencydump;
 
 
 import org.apache.commons.cli.*;
+import org.apache.commons.io.FileUtils;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 public class Main {
@@ -10,9 +16,21 @@ public class Main {
     private static final String excludeGroupsParam = "excludeGroups";
     private static final String includeScopesParam = "includeScopes";
     private static final String includeLicense = "includeLicense";
+    private static final String includeChecksums = "includeChecksums";
     private static final String localRepoParam = "localRepo";
     private static final String projectParam = "project";
     private static final String printTree = "tree";
+    private static final String reportConflicts = "reportConflicts";
+    private static final String saveSnapshotParam = "saveSnapshot";
+    private static final String maxFlatMemoryParam = "maxFlatMemory";
+    private static final String diffSnapshotParam = "diffSnapshot";
+    private static final String repositoriesParam = "repositories";
+    private static final String trainCds = "trainCds";
+    private static final String shardParam = "shard";
+    private static final String shardsParam = "shards";
+    private static final String shardDirParam = "shardDir";
+    private static final String mergeParam = "merge";
+    private static final String runIdParam = "runId";
 
     private static final Logger logger = Logger.getLogger("main");
 
@@ -22,10 +40,22 @@ public class Main {
         Options options = new Options();
         options.addOption(new Option(localRepoParam, true, "Filesystem path to local maven repository (required)"));
         options.addOption(new Option(projectParam, true, "Filesystem path to project (required)"));
+        options.addOption(new Option(repositoriesParam, true, "Remote repository urls separated by comma. Default central and java.net."));
         options.addOption(new Option(excludeGroupsParam, true, "Excludes dependencies with specified groupIds separated by comma. Transitive dependencies of excluded artifacts will not be printed, use with caution."));
         options.addOption(new Option(includeScopesParam, true, "Include only dependencies with specified scopes. Separated by comma. Transitive dependencies of excluded artifacts will not be printed, use with caution."));
         options.addOption(new Option(includeLicense, false, "Include licenses parsed from POM files of direct dependencies. Default false."));
+        options.addOption(new Option(includeChecksums, false, "Include size and SHA-256 checksum of resolved artifact files. Checksums are cached in the local repository. Default false."));
         options.addOption(new Option(printTree, false, "Print dependencies as a tree merged from all subprojects instead of flat output. Default false."));
+        options.addOption(new Option(shardParam, true, "Resolve only modules of shard <index>/<count> (index starts at 0) and write partial result to -shardDir instead of printing."));
+        options.addOption(new Option(shardsParam, true, "Resolve modules in given number of local worker processes and print merged result."));
+        options.addOption(new Option(shardDirParam, true, "Directory of partial results for -shard, -shards and -merge. Default temporary directory for -shards, deleted after merge."));
+        options.addOption(new Option(mergeParam, false, "Print result merged from partial results of all shards in -shardDir. Default false."));
+        options.addOption(new Option(runIdParam, true, "Identifier of the run written by -shard and required by -merge, e.g. CI build number. Default hash of project POMs and options."));
+        options.addOption(new Option(reportConflicts, false, "Report artifacts resolved in more than one version by different direct dependencies or modules, with requesting modules, paths and version selected by maven mediation and dependency management of each module. Versions already evicted by maven within the graph of a single direct dependency are not reported. Default false."));
+        options.addOption(new Option(maxFlatMemoryParam, true, "Flatten dependencies for flat output using at most given megabytes of memory, spilling to sorted temporary files. Default unlimited."));
+        options.addOption(new Option(saveSnapshotParam, true, "Save flattened dependencies to binary snapshot file for later -diffSnapshot."));
+        options.addOption(new Option(diffSnapshotParam, true, "Print added, removed and changed dependencies against snapshot file saved by -saveSnapshot instead of full output."));
+        options.addOption(new Option(trainCds, false, "Run with given options and write AppCDS archive of loaded classes next to the jar, used by dependency-dump.sh to speed up startup. Requires java 13+."));
 
         CommandLine line;
 
@@ -34,7 +64,7 @@ public class Main {
         try {
             // parse the command line arguments
             line = parser.parse( options, args );
-            if (!line.hasOption(localRepoParam) || !line.hasOption(projectParam)) {
+            if (!line.hasOption(localRepoParam) || !line.hasOption(projectParam) && !line.hasOption(mergeParam)) {
                 HelpFormatter formatter = new HelpFormatter();
                 formatter.printHelp( "dependency-dump", options);
                 System.out.println("\n\nExample:");
@@ -48,7 +78,45 @@ public class Main {
             return;
         }
 
+        if (line.hasOption(trainCds)) {
+            CdsArchive.train(Arrays.stream(args).filter(arg -> !arg.equals("-" + trainCds)).toArray(String[]::new));
+            return;
+        }
 
+        String shardDir = line.getOptionValue(shardDirParam);
+        String runId = line.getOptionValue(runIdParam);
+        if (line.hasOption(shardsParam)) {
+            File dir = shardDir != null ? new File(shardDir) : Files.createTempDirectory("dependency-dump-shards").toFile();
+            if (runId == null) {
+                runId = UUID.randomUUID().toString();
+            }
+            boolean success;
+            try {
+                success = ShardLauncher.runLocal(args, Integer.parseInt(line.getOptionValue(shardsParam)), dir, runId);
+                if (success) {
+                    buildRunner(line, dir.getAbsolutePath(), runId, true).run();
+                }
+            } finally {
+                // partial results are kept only in directory given by user
+                if (shardDir == null) {
+                    deleteShardDir(dir);
+                }
+            }
+            if (!success) {
+                System.exit(1);
+            }
+            return;
+        }
+        boolean merge = line.hasOption(mergeParam);
+        if ((merge || line.hasOption(shardParam)) && shardDir == null) {
+            System.err.println("Option -" + shardDirParam + " is required for -" + shardParam + " and -" + mergeParam);
+            System.exit(1);
+        }
+
+        buildRunner(line, shardDir, runId, merge).run();
+    }
+
+    private static Runner buildRunner(CommandLine line, String shardDir, String runId, boolean merge) {
         Builder builder = new Builder();
 
         builder.setProjectPath(line.getOptionValue(projectParam));
@@ -59,6 +127,11 @@ public class Main {
         Integer port = proxyPort!=null && !proxyPort.isEmpty() ? Integer.parseInt(proxyPort) : null;
         builder.setProxyPort(port);
 
+        String repositories;
+        if ((repositories = line.getOptionValue(repositoriesParam)) != null) {
+            builder.setRepositories(repositories.split(","));
+        }
+
         String excludes;
         if ((excludes = line.getOptionValue(excludeGroupsParam)) != null) {
             logger.info("Excluding ["+excludes+"] groups and its dependencies.");
@@ -71,19 +144,51 @@ public class Main {
             builder.setScopes(includes.split(","));
         }
 
+        String shard;
+        if ((shard = line.getOptionValue(shardParam)) != null) {
+            String[] shardParts = shard.split("/");
+            builder.setShard(Integer.parseInt(shardParts[0]), Integer.parseInt(shardParts[1]));
+        }
+        builder.setShardDir(shardDir);
+        builder.setRunId(runId);
+        builder.setMerge(merge);
+
         if (line.hasOption(printTree)) {
             builder.setPrintTree(true);
         }
 
+        String maxFlatMemory;
+        if ((maxFlatMemory = line.getOptionValue(maxFlatMemoryParam)) != null) {
+            builder.setMaxFlatMemory(Integer.parseInt(maxFlatMemory));
+        }
+
+        builder.setSaveSnapshot(line.getOptionValue(saveSnapshotParam));
+        builder.setDiffSnapshot(line.getOptionValue(diffSnapshotParam));
+
+        if (line.hasOption(reportConflicts)) {
+            builder.setReportConflicts(true);
+        }
+
         if (line.hasOption(includeLicense)) {
             builder.setIncludeLicense(true);
         }
 
-        Runner runner = builder.buildRunner();
-        runner.run();
+        if (line.hasOption(includeChecksums)) {
+            builder.setIncludeChecksums(true);
+        }
+
+        return builder.buildRunner();
+    }
+
+    private static void deleteShardDir(File dir) {
+        try {
+            FileUtils.deleteDirectory(dir);
+        } catch (IOException e) {
+            logger.warning("Cannot delete " + dir + ": " + e.getMessage());
+        }
     }
 
-    private static String getProxyHost() {
+    static String getProxyHost() {
         String proxyHost = System.getProperty("http.proxyHost");
         if (proxyHost != null) {
             return proxyHost;
@@ -99,7 +204,7 @@ public class Main {
         return null;
     }
 
-    private static String getProxyPort() {
+    static String getProxyPort() {
         String proxyPort = System.getProperty("http.proxyPort");
         if (proxyPort != null) {
             return proxyPort;
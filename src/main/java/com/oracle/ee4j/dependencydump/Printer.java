@@ -2,17 +2,13 @@ package com.oracle.ee4j.dependencydump;
 
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.License;
-import org.apache.maven.model.Model;
-import org.apache.maven.model.building.DefaultModelBuildingRequest;
-import org.apache.maven.model.building.ModelSource;
-import org.apache.maven.model.resolution.ModelResolver;
 import org.apache.maven.model.resolution.UnresolvableModelException;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.graph.DependencyNode;
 
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -20,25 +16,46 @@ public class Printer {
 
     private static Logger logger = Logger.getLogger("printer");
 
+    private static final int checksumBatchSize = 256;
+
     private DependencyCollector collector;
     private boolean printTree;
     private boolean includeLicense;
+    private boolean reportConflicts;
+    private File saveSnapshotFile;
+    private long maxFlatMemory;
+    private File diffSnapshotFile;
+    private ChecksumCalculator checksumCalculator;
+    private Map<String, ChecksumCalculator.Checksum> checksums = Collections.emptyMap();
     private String[] scopes;
     private String[] excludes;
-    private ModelResolver modelResolver;
+    private LicenseExtractor licenseExtractor;
 
     public Printer(DependencyCollector collector) {
         this.collector = collector;
-        this.modelResolver = collector.getModelResolver();
+        this.licenseExtractor = new LicenseExtractor(collector.getModelResolver());
         this.scopes = collector.getScopes();
         this.excludes = collector.getExcludes();
     }
 
     public void print() {
-        if (printTree) {
-            printTree();
-        } else {
-            printFlat();
+        try {
+            if (diffSnapshotFile != null) {
+                printSnapshotDiff();
+            } else if (printTree) {
+                printTree();
+            } else if (maxFlatMemory > 0) {
+                printFlatExternal();
+            } else {
+                printFlat();
+            }
+            if (saveSnapshotFile != null) {
+                saveSnapshot();
+            }
+        } finally {
+            if (checksumCalculator != null) {
+                checksumCalculator.close();
+            }
         }
     }
 
@@ -53,7 +70,12 @@ public class Printer {
         }
 
         str.append("").append(node.getArtifact().getGroupId()).append(":").append(node.getArtifact().getArtifactId()).append(":").append(node.getArtifact().getBaseVersion());
-        str.append(" (Scope: ").append(node.getDependency().getScope()).append(", Optional: ").append(node.getDependency().isOptional()).append(")");
+        str.append(" (Scope: ").append(node.getDependency().getScope()).append(", Optional: ").append(node.getDependency().isOptional());
+        ChecksumCalculator.Checksum checksum = checksums.get(Util.toArtifactFileKey(node.getArtifact()));
+        if (checksum != null) {
+            str.append(", Size: ").append(checksum.getSize()).append(", SHA-256: ").append(checksum.getSha256());
+        }
+        str.append(")");
         logger.info(str.toString());
         for (DependencyNode child : node.getChildren()) {
             printDependencyNode(child, count+1);
@@ -61,85 +83,323 @@ public class Printer {
     }
 
     private void printFlat() {
+        ConflictAnalyzer conflictAnalyzer = reportConflicts ? new ConflictAnalyzer(this::isExcluded) : null;
+        List<Dependency> directFiltered = filterDirect();
+        List<DependencyNode> filteredTransitive = filterTransitive(conflictAnalyzer);
+
+        if (checksumCalculator != null) {
+            List<String> artifactKeys = new ArrayList<>();
+            directFiltered.forEach(dependency -> artifactKeys.add(Util.toArtifactFileKey(Util.toArtifact(dependency))));
+            filteredTransitive.forEach(node -> artifactKeys.add(Util.toArtifactFileKey(node.getArtifact())));
+            computeChecksums(artifactKeys);
+        }
+
+        printDirect(directFiltered);
+
+        logger.info(" === Transitive dependencies: === \n");
+
+        filteredTransitive.forEach(node -> {
+            printArtifactSeparator();
+            logger.info("Artifact: " + Util.toArtifactId(node) + ":" + node.getDependency().getScope());
+            Artifact dependencyArtifact = node.getDependency().getArtifact();
+            printLicense(dependencyArtifact.getGroupId(), dependencyArtifact.getArtifactId(), dependencyArtifact.getVersion());
+            printChecksum(Util.toArtifactFileKey(node.getArtifact()));
+        });
+
+        logger.info("\n Count: "+filteredTransitive.size());
+
+        logger.info("\n ================================ \n");
+
+        if (conflictAnalyzer != null) {
+            printConflicts(conflictAnalyzer);
+        }
+    }
+
+    private void printDirect(List<Dependency> directFiltered) {
         logger.info(" === Direct dependencies: === \n");
-        List<Dependency> directFiltered = collector.getDirectDependencies().values().stream().filter(
-                (dependency -> !collector.getProjectArtifacts().contains(new ProjectArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion()))))
-                .collect(Collectors.toList());
         directFiltered.forEach((dependency) -> {
             printArtifactSeparator();
             logger.info("Artifact: " + dependency.getGroupId() + ":" + dependency.getArtifactId() +":" +dependency.getType() + ":" + dependency.getVersion() + ":" +dependency.getScope());
             printLicense(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion());
+            printChecksum(Util.toArtifactFileKey(Util.toArtifact(dependency)));
         });
         logger.info("\n Count: "+directFiltered.size());
         logger.info("\n ============================\n\n\n");
+    }
 
+    /**
+     * Same output as {@link #printFlat()}, transitive dependencies are flattened by {@link ExternalFlattener}
+     * within the memory budget and printed while merged.
+     */
+    private void printFlatExternal() {
+        ConflictAnalyzer conflictAnalyzer = reportConflicts ? new ConflictAnalyzer(this::isExcluded) : null;
+        List<Dependency> directFiltered = filterDirect();
+
+        if (checksumCalculator != null) {
+            computeChecksums(directFiltered.stream().map(dependency -> Util.toArtifactFileKey(Util.toArtifact(dependency))).collect(Collectors.toList()));
+        }
+
+        printDirect(directFiltered);
+
+        logger.info(" === Transitive dependencies: === \n");
+
+        int count;
+        try (ExternalFlattener flattener = new ExternalFlattener(maxFlatMemory, this::isExcluded)) {
+            for (DependencyNode node : collector.getTransitiveDependencies()) {
+                flattener.addRoot(node);
+                if (conflictAnalyzer != null) {
+                    conflictAnalyzer.addRoot(getModuleName(node), getManagedVersions(node), node);
+                }
+            }
+
+            List<ExternalFlattener.FlatRecord> batch = new ArrayList<>();
+            int[] printed = new int[1];
+            flattener.forEach(record -> {
+                String artifactKey = record.getGroupId() + ":" + record.getArtifactId() + ":" + record.getVersion();
+                if (dependencyExcluded(record.getGroupId(), record.getScope(), record.isOptional())
+                        || collector.getDirectDependencies().containsKey(artifactKey)) {
+                    return;
+                }
+                batch.add(record);
+                // checksums are hashed in parallel for a batch, not for the whole output at once
+                if (batch.size() == checksumBatchSize) {
+                    printed[0] += printFlatRecords(batch);
+                }
+            });
+            printed[0] += printFlatRecords(batch);
+            count = printed[0];
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot flatten dependencies using temporary files", e);
+        }
+
+        logger.info("\n Count: "+count);
+
+        logger.info("\n ================================ \n");
+
+        if (conflictAnalyzer != null) {
+            printConflicts(conflictAnalyzer);
+        }
+    }
+
+    private int printFlatRecords(List<ExternalFlattener.FlatRecord> records) {
+        if (checksumCalculator != null) {
+            computeChecksums(records.stream().map(record -> Util.toArtifactFileKey(record.toArtifact())).collect(Collectors.toList()));
+        }
+        for (ExternalFlattener.FlatRecord record : records) {
+            printArtifactSeparator();
+            logger.info("Artifact: " + record.getKey() + ":" + record.getScope());
+            printLicense(record.getGroupId(), record.getArtifactId(), record.getVersion());
+            printChecksum(Util.toArtifactFileKey(record.toArtifact()));
+        }
+        int count = records.size();
+        records.clear();
+        return count;
+    }
+
+    private List<Dependency> filterDirect() {
+        return collector.getDirectDependencies().values().stream().filter(
+                (dependency -> !collector.getProjectArtifacts().contains(new ProjectArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion()))))
+                .collect(Collectors.toList());
+    }
+
+    private List<DependencyNode> filterTransitive(ConflictAnalyzer conflictAnalyzer) {
         Map<String, DependencyNode> merged = new TreeMap<>();
         for (DependencyNode node : collector.getTransitiveDependencies()) {
             flattenDependencyTree(merged, node);
+            if (conflictAnalyzer != null) {
+                conflictAnalyzer.addRoot(getModuleName(node), getManagedVersions(node), node);
+            }
         }
-        logger.info(" === Transitive dependencies: === \n");
 
-        List<DependencyNode> filteredTransitive = merged.values().stream().filter(node -> {
+        return merged.values().stream().filter(node -> {
             Artifact artifact = node.getArtifact();
             boolean excluded = dependencyExcluded(node.getDependency());
             String artifactKey = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
             return !excluded && !collector.getDirectDependencies().containsKey(artifactKey);
         }).collect(Collectors.toList());
+    }
 
-        filteredTransitive.forEach(node -> {
-            printArtifactSeparator();
-            logger.info("Artifact: " + Util.toArtifactId(node) + ":" + node.getDependency().getScope());
-            Artifact dependencyArtifact = node.getDependency().getArtifact();
-            printLicense(dependencyArtifact.getGroupId(), dependencyArtifact.getArtifactId(), dependencyArtifact.getVersion());
-        });
+    private List<Snapshot.Record> toSnapshotRecords() {
+        List<Snapshot.Record> records = new ArrayList<>();
+        for (Dependency dependency : filterDirect()) {
+            // keyed by extension and classifier mapped from the type, same as the artifact when found transitively
+            Artifact artifact = Util.toArtifact(dependency);
+            records.add(new Snapshot.Record(dependency.getGroupId(), dependency.getArtifactId(), artifact.getExtension(), artifact.getClassifier(),
+                    dependency.getVersion(), dependency.getScope(), getLicenseNames(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion())));
+        }
+        for (DependencyNode node : filterTransitive(null)) {
+            Artifact artifact = node.getArtifact();
+            records.add(new Snapshot.Record(artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(), artifact.getClassifier(),
+                    artifact.getVersion(), node.getDependency().getScope(), getLicenseNames(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion())));
+        }
+        return records;
+    }
 
-        logger.info("\n Count: "+filteredTransitive.size());
+    private void saveSnapshot() {
+        try {
+            Snapshot.write(saveSnapshotFile, toSnapshotRecords());
+            logger.info("Snapshot saved: " + saveSnapshotFile.getAbsolutePath());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write snapshot " + saveSnapshotFile.getAbsolutePath(), e);
+        }
+    }
 
+    private void printSnapshotDiff() {
+        logger.info(" === Changes against " + diffSnapshotFile.getName() + ": === \n");
+        int[] counts = new int[3];
+        try {
+            Snapshot.diff(toSnapshotRecords(), diffSnapshotFile, new Snapshot.DiffListener() {
+                @Override
+                public void added(Snapshot.Record record) {
+                    counts[0]++;
+                    logger.info("Added: " + record.getKey() + ":" + record.getVersion() + ":" + record.getScope() + formatLicenses(record));
+                }
+
+                @Override
+                public void removed(Snapshot.Record record) {
+                    counts[1]++;
+                    logger.info("Removed: " + record.getKey() + ":" + record.getVersion() + ":" + record.getScope() + formatLicenses(record));
+                }
+
+                @Override
+                public void changed(List<Snapshot.Record> oldRecords, List<Snapshot.Record> newRecords) {
+                    counts[2]++;
+                    logger.info("Changed: " + newRecords.get(0).getKey() + " " + formatVersions(oldRecords) + " -> " + formatVersions(newRecords));
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read snapshot " + diffSnapshotFile.getAbsolutePath(), e);
+        }
+        logger.info("\n Added: " + counts[0] + ", Removed: " + counts[1] + ", Changed: " + counts[2]);
         logger.info("\n ================================ \n");
     }
 
+    // licenses may differ between versions and between the snapshot and the current state
+    private static String formatVersions(List<Snapshot.Record> records) {
+        return records.stream().map(record -> record.getVersion() + ":" + record.getScope() + formatLicenses(record))
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static String formatLicenses(Snapshot.Record record) {
+        return record.getLicenses().isEmpty() ? "" : " Licenses: " + record.getLicenses();
+    }
+
     private void printArtifactSeparator() {
-        if (includeLicense) {
+        if (includeLicense || checksumCalculator != null) {
             logger.info("--------------------------------");
         }
     }
 
     private void printTree() {
+        if (checksumCalculator != null) {
+            computeChecksums(collector.getArtifactFiles().keySet());
+        }
+        ConflictAnalyzer conflictAnalyzer = reportConflicts ? new ConflictAnalyzer(this::isExcluded) : null;
         for (DependencyNode dependencyNode : collector.getTransitiveDependencies()) {
             printDependencyNode(dependencyNode, 0);
+            if (conflictAnalyzer != null) {
+                conflictAnalyzer.addRoot(getModuleName(dependencyNode), getManagedVersions(dependencyNode), dependencyNode);
+            }
+        }
+        if (conflictAnalyzer != null) {
+            printConflicts(conflictAnalyzer);
         }
     }
 
+    private void printConflicts(ConflictAnalyzer conflictAnalyzer) {
+        logger.info(" === Version conflicts: === \n");
+        List<ConflictAnalyzer.Conflict> conflicts = conflictAnalyzer.getConflicts();
+        for (ConflictAnalyzer.Conflict conflict : conflicts) {
+            logger.info("--------------------------------");
+            logger.info("Artifact: " + conflict.getKey());
+            conflict.getVersions().forEach((version, requests) -> {
+                logger.info("  - Version: [" + version + "]");
+                requests.forEach((module, path) -> logger.info("      requested by [" + module + "] via " + path));
+            });
+            StringBuilder str = new StringBuilder("  - Mediated:");
+            conflict.getMediatedVersions().forEach((module, version) -> str.append(" [").append(module).append(" -> ").append(version)
+                    .append(conflict.isManaged(module) ? " (managed)]" : "]"));
+            logger.info(str.toString());
+        }
+        logger.info("\n Count: " + conflicts.size());
+        logger.info("\n ================================ \n");
+    }
+
+    private String getModuleName(DependencyNode root) {
+        ProjectArtifact module = collector.getModule(root);
+        return module != null ? module.getGroupId() + ":" + module.getVersionId() : "unknown";
+    }
+
+    private Map<String, String> getManagedVersions(DependencyNode root) {
+        ProjectArtifact module = collector.getModule(root);
+        return module != null ? collector.getManagedVersions(module) : Collections.emptyMap();
+    }
+
     private void printLicense(String groupId, String artifactId, String version) {
         if (!includeLicense) {
             return;
         }
+        for (License license  : getLicenses(groupId, artifactId, version)) {
+            logger.info("  - License: [" + license.getName() + "] URL: ["+license.getUrl()+"]");
+        }
+    }
+
+    private List<License> getLicenses(String groupId, String artifactId, String version) {
         try {
-            ModelSource modelSource = modelResolver.resolveModel(groupId, artifactId, version);
-            Model model = loadModel(modelSource);
-            for (License license  : model.getLicenses()) {
-                logger.info("  - License: [" + license.getName() + "] URL: ["+license.getUrl()+"]");
-            }
+            return licenseExtractor.getLicenses(groupId, artifactId, version);
         } catch (UnresolvableModelException | RuntimeException e) {
             //doesn't matter
+            return Collections.emptyList();
         }
     }
 
-    private Model loadModel(ModelSource modelSource) {
+    private List<String> getLicenseNames(String groupId, String artifactId, String version) {
+        if (!includeLicense) {
+            return Collections.emptyList();
+        }
+        return getLicenses(groupId, artifactId, version).stream()
+                .map(license -> license.getName() + " (" + license.getUrl() + ")").collect(Collectors.toList());
+    }
 
-        final DefaultModelBuildingRequest modelBuildingRequest = new DefaultModelBuildingRequest()
-                .setSystemProperties(System.getProperties()).setModelResolver(modelResolver).setModelSource(modelSource);
+    private void computeChecksums(Collection<String> artifactKeys) {
+        Map<String, File> files = new HashMap<>();
+        for (String artifactKey : artifactKeys) {
+            File file = collector.getArtifactFiles().get(artifactKey);
+            if (file != null && file.isFile()) {
+                files.put(artifactKey, file);
+            }
+        }
+        Map<File, ChecksumCalculator.Checksum> computed = checksumCalculator.computeAll(files.values());
+        checksums = new HashMap<>();
+        files.forEach((artifactKey, file) -> {
+            ChecksumCalculator.Checksum checksum = computed.get(file);
+            if (checksum != null) {
+                checksums.put(artifactKey, checksum);
+            }
+        });
+    }
 
-        return Util.getModel(modelBuildingRequest);
+    private void printChecksum(String artifactKey) {
+        if (checksumCalculator == null) {
+            return;
+        }
+        ChecksumCalculator.Checksum checksum = checksums.get(artifactKey);
+        if (checksum != null) {
+            logger.info("  - Size: [" + checksum.getSize() + "] SHA-256: [" + checksum.getSha256() + "]");
+        }
     }
 
     private boolean dependencyExcluded(org.eclipse.aether.graph.Dependency dependency) {
-        if (dependency.isOptional()) {
+        return dependencyExcluded(dependency.getArtifact().getGroupId(), dependency.getScope(), dependency.isOptional());
+    }
+
+    private boolean dependencyExcluded(String groupId, String scope, boolean optional) {
+        if (optional) {
             return true;
         }
         if (excludes != null) {
             for (String excl : excludes) {
-                if (dependency.getArtifact().getGroupId().contains(excl)) {
+                if (groupId.contains(excl)) {
                     return true;
                 }
             }
@@ -147,7 +407,7 @@ public class Printer {
 
         if (scopes != null) {
             for (String scp : scopes) {
-                if (scp.equals(dependency.getScope())) {
+                if (scp.equals(scope)) {
                     return false;
                 }
             }
@@ -194,4 +454,27 @@ public class Printer {
     public void setIncludeLicense(boolean includeLicense) {
         this.includeLicense = includeLicense;
     }
+
+    public void setReportConflicts(boolean reportConflicts) {
+        this.reportConflicts = reportConflicts;
+    }
+
+    /**
+     * Bytes of flattened records kept in memory before spilling to temporary files, 0 to flatten in memory.
+     */
+    public void setMaxFlatMemory(long maxFlatMemory) {
+        this.maxFlatMemory = maxFlatMemory;
+    }
+
+    public void setSaveSnapshotFile(File saveSnapshotFile) {
+        this.saveSnapshotFile = saveSnapshotFile;
+    }
+
+    public void setDiffSnapshotFile(File diffSnapshotFile) {
+        this.diffSnapshotFile = diffSnapshotFile;
+    }
+
+    public void setChecksumCalculator(ChecksumCalculator checksumCalculator) {
+        this.checksumCalculator = checksumCalculator;
+    }
 }
@@ -1,8 +1,12 @@
 package com.oracle.ee4j.dependencydump;
 
+import java.io.Serializable;
 import java.util.Objects;
 
-final class ProjectArtifact {
+final class ProjectArtifact implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
     private final String groupId;
     private final String versionId;
     private final String version;
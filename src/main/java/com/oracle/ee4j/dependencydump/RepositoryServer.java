@@ -0,0 +1,217 @@
+package com.oracle.ee4j.dependencydump;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Embedded HTTP server serving a maven repository layout from a local directory.
+ * Stands in for a remote repository in tests and benchmarks, with configurable
+ * per-request latency, bandwidth limit and error injection.
+ * <p>
+ * Requests with an absolute URI are served the same way, so the server can also be
+ * configured as the HTTP proxy of a remote repository with an unreachable host.
+ */
+public class RepositoryServer {
+
+    private static final Logger logger = Logger.getLogger("repository-server");
+
+    private static final int bufferSize = 8 * 1024;
+
+    private final File root;
+    private final int port;
+    private final int threads;
+    private long latencyMillis;
+    private long bandwidthBytesPerSecond;
+    private double errorRate;
+    private long seed = 42;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private Random random;
+
+    public RepositoryServer(File root) {
+        this(root, 0, 16);
+    }
+
+    public RepositoryServer(File root, int port, int threads) {
+        if (!root.isDirectory()) {
+            throw new IllegalArgumentException("Repository directory not exists: " + root.getAbsolutePath());
+        }
+        this.root = root;
+        this.port = port;
+        this.threads = threads;
+    }
+
+    public void start() throws IOException {
+        random = new Random(seed);
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        logger.info("Repository server started at " + getUrl() + " serving " + root.getAbsolutePath());
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            sleep(latencyMillis);
+
+            if (injectError()) {
+                injectedErrors.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            File file = resolveFile(exchange.getRequestURI().getPath());
+            if (file == null || !file.isFile()) {
+                notFound.incrementAndGet();
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Last-Modified",
+                    DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(file.lastModified()).atOffset(ZoneOffset.UTC)));
+            if ("HEAD".equals(method)) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(file.length()));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, file.length());
+            try (InputStream in = new FileInputStream(file); OutputStream out = exchange.getResponseBody()) {
+                copy(in, out);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private File resolveFile(String path) throws IOException {
+        if (path == null) {
+            return null;
+        }
+        File file = new File(root, path).getCanonicalFile();
+        if (!file.getPath().startsWith(root.getCanonicalPath())) {
+            return null;
+        }
+        return file;
+    }
+
+    private void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        long started = System.nanoTime();
+        long sent = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            sent += read;
+            bytesSent.addAndGet(read);
+            if (bandwidthBytesPerSecond > 0) {
+                long expectedNanos = sent * 1_000_000_000L / bandwidthBytesPerSecond;
+                long aheadNanos = expectedNanos - (System.nanoTime() - started);
+                sleep(aheadNanos / 1_000_000);
+            }
+        }
+    }
+
+    private boolean injectError() {
+        if (errorRate <= 0) {
+            return false;
+        }
+        synchronized (random) {
+            return random.nextDouble() < errorRate;
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void resetStatistics() {
+        requests.set(0);
+        notFound.set(0);
+        injectedErrors.set(0);
+        bytesSent.set(0);
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + getPort() + "/";
+    }
+
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getNotFound() {
+        return notFound.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setBandwidthBytesPerSecond(long bandwidthBytesPerSecond) {
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
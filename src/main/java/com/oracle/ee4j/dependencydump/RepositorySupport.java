@@ -22,26 +22,21 @@ import org.eclipse.aether.transport.http.HttpTransporterFactory;
 import org.eclipse.aether.util.artifact.JavaScopes;
 import org.eclipse.aether.util.filter.DependencyFilterUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 public class RepositorySupport {
 
-    private RepositorySystem repositorySystem;
-
     private final LocalRepository localRepository;
 
     private Proxy proxy;
 
+    private String[] repositoryUrls;
+
     public RepositorySupport(String localRepositoryPath) {
         this.localRepository = new LocalRepository(localRepositoryPath);
-
-        DefaultServiceLocator locator = MavenRepositorySystemUtils.newServiceLocator();
-        locator.addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class);
-        locator.addService(TransporterFactory.class, FileTransporterFactory.class);
-        locator.addService(TransporterFactory.class, HttpTransporterFactory.class);
-        repositorySystem = locator.getService(RepositorySystem.class);
     }
 
     public RepositorySupport(String localRepositoryPath, String proxyHost, Integer proxyPort) {
@@ -51,10 +46,19 @@ public class RepositorySupport {
 
 
     public RepositorySystem getRepositorySystem() {
-        return repositorySystem;
+        return RepositorySystemHolder.repositorySystem;
     }
 
     public List<RemoteRepository> getRepositories() {
+        if (repositoryUrls != null) {
+            List<RemoteRepository> repositories = new ArrayList<>();
+            for (int i = 0; i < repositoryUrls.length; i++) {
+                repositories.add(new RemoteRepository.Builder("remote" + i, "default", repositoryUrls[i])
+                        .setProxy(proxy).build());
+            }
+            return repositories;
+        }
+
         RemoteRepository central = new RemoteRepository.Builder("central", "default", "http://repo1.maven.org/maven2/")
                 .setProxy(proxy).build();
 
@@ -63,9 +67,16 @@ public class RepositorySupport {
         return Arrays.asList(central, javaNet);
     }
 
+    /**
+     * Replaces default remote repositories (central, java.net) with given urls.
+     */
+    public void setRepositoryUrls(String[] repositoryUrls) {
+        this.repositoryUrls = repositoryUrls;
+    }
+
     public RepositorySystemSession newSession() {
         DefaultRepositorySystemSession session = MavenRepositorySystemUtils.newSession();
-        session.setLocalRepositoryManager(repositorySystem.newLocalRepositoryManager(session, localRepository));
+        session.setLocalRepositoryManager(getRepositorySystem().newLocalRepositoryManager(session, localRepository));
         return session;
     }
 
@@ -78,12 +89,12 @@ public class RepositorySupport {
         Artifact artifact = new DefaultArtifact("org.glassfish.tyrus:jvnet-parent:5");
 
         ArtifactRequest artifactRequest = new ArtifactRequest(artifact, getRepositories(), null);
-        ArtifactResult artifactResult1 = repositorySystem.resolveArtifact(session, artifactRequest);
+        ArtifactResult artifactResult1 = getRepositorySystem().resolveArtifact(session, artifactRequest);
 
         CollectRequest collectRequest = new CollectRequest(new Dependency(artifact, JavaScopes.COMPILE), getRepositories());
         DependencyFilter filter = DependencyFilterUtils.classpathFilter(JavaScopes.COMPILE);
         DependencyRequest request = new DependencyRequest(collectRequest, filter);
-        DependencyResult result = repositorySystem.resolveDependencies(session, request);
+        DependencyResult result = getRepositorySystem().resolveDependencies(session, request);
 
 
         for (ArtifactResult artifactResult : result.getArtifactResults()) {
@@ -91,4 +102,19 @@ public class RepositorySupport {
             System.out.println(artifactResult.getArtifact().getProperties());
         }
     }
+
+    /**
+     * Wires the service locator on first use only, it is the most expensive part of startup.
+     */
+    private static class RepositorySystemHolder {
+        private static final RepositorySystem repositorySystem = newRepositorySystem();
+
+        private static RepositorySystem newRepositorySystem() {
+            DefaultServiceLocator locator = MavenRepositorySystemUtils.newServiceLocator();
+            locator.addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class);
+            locator.addService(TransporterFactory.class, FileTransporterFactory.class);
+            locator.addService(TransporterFactory.class, HttpTransporterFactory.class);
+            return locator.getService(RepositorySystem.class);
+        }
+    }
 }
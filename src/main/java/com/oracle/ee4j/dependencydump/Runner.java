@@ -1,10 +1,15 @@
 package com.oracle.ee4j.dependencydump;
 
+import java.io.File;
+
 public class Runner {
 
     private final String rootProjectDir;
     private DependencyCollector collector;
     private Printer printer;
+    private File shardDir;
+    private String runId;
+    private boolean merge;
 
     public Runner(String rootProjectDir, DependencyCollector collector, Printer printer) {
         this.rootProjectDir = rootProjectDir;
@@ -14,10 +19,29 @@ public class Runner {
 
 
     public void run() {
+        if (merge) {
+            collector.merge(ShardResult.readAll(shardDir, runId));
+            printer.print();
+            return;
+        }
         collector.parsePom(rootProjectDir);
+        if (collector.getShardResult() != null) {
+            collector.writeShardResult(shardDir);
+            return;
+        }
         printer.print();
     }
 
+    public void setShardDir(File shardDir) {
+        this.shardDir = shardDir;
+    }
 
+    public void setRunId(String runId) {
+        this.runId = runId;
+    }
+
+    public void setMerge(boolean merge) {
+        this.merge = merge;
+    }
 
 }
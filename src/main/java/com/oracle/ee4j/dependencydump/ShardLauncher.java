@@ -0,0 +1,86 @@
+package com.oracle.ee4j.dependencydump;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Runs shards of the reactor in local worker processes, see -shards.
+ */
+class ShardLauncher {
+
+    private static final Logger logger = Logger.getLogger("shards");
+
+    // options replaced in worker command line, all of them take a value
+    private static final List<String> launcherOptions = Arrays.asList("-shards", "-shardDir", "-shard", "-runId");
+
+    /**
+     * Starts a worker process for every shard with given dump arguments and waits for all of them.
+     *
+     * @param runId identifier written to results of all workers
+     * @return true if all workers wrote their results
+     */
+    static boolean runLocal(String[] args, int shardCount, File shardDir, String runId) throws IOException, InterruptedException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        if (!shardDir.isDirectory() && !shardDir.mkdirs()) {
+            throw new IllegalStateException("Cannot create shard directory " + shardDir.getAbsolutePath());
+        }
+        List<String> workerArgs = removeLauncherOptions(args);
+
+        List<Process> workers = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            File stale = ShardResult.getFile(shardDir, i, shardCount);
+            if (stale.exists() && !stale.delete()) {
+                throw new IllegalStateException("Cannot delete previous shard result " + stale.getAbsolutePath());
+            }
+            List<String> command = new ArrayList<>();
+            command.add(CdsArchive.javaExecutable());
+            // workers get the heap limit of the launcher
+            command.addAll(CdsArchive.jvmOptions());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(Main.class.getName());
+            command.addAll(workerArgs);
+            command.add("-shard");
+            command.add(i + "/" + shardCount);
+            command.add("-shardDir");
+            command.add(shardDir.getAbsolutePath());
+            command.add("-runId");
+            command.add(runId);
+            workers.add(new ProcessBuilder(command).inheritIO().start());
+        }
+        logger.info("Started " + shardCount + " shard workers writing to " + shardDir.getAbsolutePath());
+
+        boolean success = true;
+        for (int i = 0; i < workers.size(); i++) {
+            int exitCode = workers.get(i).waitFor();
+            if (exitCode != 0 || !ShardResult.getFile(shardDir, i, shardCount).isFile()) {
+                logger.severe("Shard " + i + " of " + shardCount + " failed with exit code " + exitCode);
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    private static List<String> removeLauncherOptions(String[] args) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            int assignment = arg.indexOf('=');
+            String option = assignment > 0 ? arg.substring(0, assignment) : arg;
+            if (launcherOptions.contains(option)) {
+                if (assignment < 0) {
+                    i++;
+                }
+                continue;
+            }
+            result.add(arg);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,408 @@
+package com.oracle.ee4j.dependencydump;
+
+import org.apache.maven.model.Dependency;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.DependencyNode;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Partial result of one shard of the reactor, written by -shard runs and combined by -merge.
+ * Modules keep their index in reactor order, so merged output is the same as of a single process run.
+ * <p>
+ * The file starts with the serialized result without dependency graphs, graphs of every module follow it
+ * in module order. Merge reads graphs of a single module at a time, see {@link #readModules(List)}.
+ */
+class ShardResult implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    private static final Pattern fileNamePattern = Pattern.compile("shard-(\\d+)-of-(\\d+)\\.bin");
+
+    private final int shardIndex;
+    private final int shardCount;
+    private String runId;
+    private final Set<ProjectArtifact> projectArtifacts = new HashSet<>();
+    private final List<ModuleResult> modules = new ArrayList<>();
+
+    private transient File file;
+    // identifies the run by its project and options when no run id is given
+    private transient MessageDigest projectDigest;
+
+    /**
+     * @param runId identifier of the run checked by merge, null to identify the run by its project and options
+     */
+    ShardResult(int shardIndex, int shardCount, String runId) {
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.runId = runId;
+        if (runId == null) {
+            try {
+                projectDigest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    void addProjectFile(File pomFile) {
+        if (projectDigest == null) {
+            return;
+        }
+        try {
+            projectDigest.update(Files.readAllBytes(pomFile.toPath()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + pomFile.getAbsolutePath(), e);
+        }
+    }
+
+    void addOption(String name, String[] values) {
+        if (projectDigest != null) {
+            projectDigest.update((name + "=" + (values != null ? String.join(",", values) : "") + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    String getRunId() {
+        return runId;
+    }
+
+    void addProjectArtifact(ProjectArtifact projectArtifact) {
+        projectArtifacts.add(projectArtifact);
+    }
+
+    ModuleResult addModule(int moduleIndex, ProjectArtifact projectArtifact) {
+        ModuleResult module = new ModuleResult(moduleIndex, projectArtifact);
+        modules.add(module);
+        return module;
+    }
+
+    Set<ProjectArtifact> getProjectArtifacts() {
+        return projectArtifacts;
+    }
+
+    List<ModuleResult> getModules() {
+        return modules;
+    }
+
+    static File getFile(File shardDir, int shardIndex, int shardCount) {
+        return new File(shardDir, "shard-" + shardIndex + "-of-" + shardCount + ".bin");
+    }
+
+    void write(File shardDir) {
+        if (runId == null) {
+            runId = "project-" + toHex(projectDigest.digest());
+        }
+        if (!shardDir.isDirectory() && !shardDir.mkdirs()) {
+            throw new IllegalStateException("Cannot create shard directory " + shardDir.getAbsolutePath());
+        }
+        File file = getFile(shardDir, shardIndex, shardCount);
+        File tmp = new File(shardDir, file.getName() + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeObject(this);
+            for (ModuleResult module : modules) {
+                out.reset();
+                out.writeInt(module.moduleIndex);
+                out.writeObject(module.transitiveDependencies);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write shard result " + file.getAbsolutePath(), e);
+        }
+        // readers on other nodes must never see a partially written result
+        if (file.exists() && !file.delete() || !tmp.renameTo(file)) {
+            throw new IllegalStateException("Cannot write shard result " + file.getAbsolutePath());
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder str = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            str.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return str.toString();
+    }
+
+    /**
+     * Reads results of all shards from the directory without dependency graphs, fails if any shard of the run is missing
+     * or results belong to different runs.
+     *
+     * @param runId expected run id, null to accept any run all shards agree on
+     */
+    static List<ShardResult> readAll(File shardDir, String runId) {
+        File[] files = shardDir.listFiles();
+        if (files == null) {
+            throw new IllegalStateException("Shard directory not exists: " + shardDir.getAbsolutePath());
+        }
+        Integer shardCount = null;
+        Map<Integer, File> shardFiles = new TreeMap<>();
+        for (File file : files) {
+            Matcher matcher = fileNamePattern.matcher(file.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+            int count = Integer.parseInt(matcher.group(2));
+            if (shardCount != null && shardCount != count) {
+                throw new IllegalStateException("Shard directory contains results of different runs: " + shardDir.getAbsolutePath());
+            }
+            shardCount = count;
+            shardFiles.put(Integer.parseInt(matcher.group(1)), file);
+        }
+        if (shardCount == null) {
+            throw new IllegalStateException("No shard results found in " + shardDir.getAbsolutePath());
+        }
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            if (!shardFiles.containsKey(i)) {
+                missing.add(i);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Missing results of shards " + missing + " of " + shardCount + " in " + shardDir.getAbsolutePath());
+        }
+        String expectedRunId = runId;
+
+        List<ShardResult> results = new ArrayList<>();
+        for (File file : shardFiles.values()) {
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                ShardResult result = (ShardResult) in.readObject();
+                if (expectedRunId == null) {
+                    expectedRunId = result.runId;
+                } else if (!expectedRunId.equals(result.runId)) {
+                    throw new IllegalStateException("Shard result " + file.getAbsolutePath() + " belongs to run " + result.runId
+                            + ", expected " + expectedRunId + ". Results of a previous run may be left in the shard directory.");
+                }
+                result.file = file;
+                for (ModuleResult module : result.modules) {
+                    module.shard = result;
+                }
+                results.add(result);
+            } catch (IOException | ClassNotFoundException e) {
+                throw new IllegalStateException("Cannot read shard result " + file.getAbsolutePath(), e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Iterates modules of all shards read by {@link #readAll(File, String)} in module order. Graphs of a module are read
+     * from its shard file when the module is reached and released when the next one is read.
+     */
+    static Iterator<ModuleResult> readModules(List<ShardResult> shards) {
+        return new ModuleIterator(shards);
+    }
+
+    private static class ModuleIterator implements Iterator<ModuleResult> {
+        private final List<ModuleResult> modules = new ArrayList<>();
+        private final Map<ShardResult, ObjectInputStream> streams = new IdentityHashMap<>();
+        private ModuleResult current;
+        private int next;
+
+        private ModuleIterator(List<ShardResult> shards) {
+            shards.forEach(shard -> modules.addAll(shard.modules));
+            Collections.sort(modules);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next < modules.size()) {
+                return true;
+            }
+            release();
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ModuleResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            release();
+            current = modules.get(next++);
+            ShardResult shard = current.shard;
+            try {
+                ObjectInputStream in = streams.get(shard);
+                if (in == null) {
+                    in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(shard.file)));
+                    streams.put(shard, in);
+                    // result without graphs is already read
+                    in.readObject();
+                }
+                if (in.readInt() != current.moduleIndex) {
+                    throw new IOException("Unexpected module order");
+                }
+                current.transitiveDependencies = (List<NodeData>) in.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                close();
+                throw new IllegalStateException("Cannot read shard result " + shard.file.getAbsolutePath(), e);
+            }
+            if (next == modules.size()) {
+                close();
+            }
+            return current;
+        }
+
+        private void release() {
+            if (current != null) {
+                current.transitiveDependencies = null;
+                current = null;
+            }
+        }
+
+        private void close() {
+            for (ObjectInputStream in : streams.values()) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    //doesn't matter, file was read
+                }
+            }
+            streams.clear();
+        }
+    }
+
+    static class ModuleResult implements Serializable, Comparable<ModuleResult> {
+
+        private static final long serialVersionUID = 2L;
+
+        private final int moduleIndex;
+        private final ProjectArtifact projectArtifact;
+        private final List<Dependency> directDependencies = new ArrayList<>();
+        private final Map<String, String> artifactFiles = new HashMap<>();
+        private final Map<String, String> managedVersions = new HashMap<>();
+
+        // written after the shard result, present only while the module is collected or merged
+        private transient List<NodeData> transitiveDependencies = new ArrayList<>();
+        private transient ShardResult shard;
+
+        ModuleResult(int moduleIndex, ProjectArtifact projectArtifact) {
+            this.moduleIndex = moduleIndex;
+            this.projectArtifact = projectArtifact;
+        }
+
+        void addDirectDependency(Dependency dependency) {
+            directDependencies.add(dependency);
+        }
+
+        void addTransitiveDependency(DependencyNode root) {
+            // graphs of separate resolutions never share nodes, nodes shared within the graph stay shared after reading
+            transitiveDependencies.add(NodeData.of(root, new IdentityHashMap<>()));
+        }
+
+        void addArtifactFile(String artifactKey, File file) {
+            artifactFiles.put(artifactKey, file.getAbsolutePath());
+        }
+
+        int getModuleIndex() {
+            return moduleIndex;
+        }
+
+        ProjectArtifact getProjectArtifact() {
+            return projectArtifact;
+        }
+
+        List<Dependency> getDirectDependencies() {
+            return directDependencies;
+        }
+
+        List<DependencyNode> getTransitiveDependencies() {
+            Map<NodeData, DependencyNode> nodes = new IdentityHashMap<>();
+            List<DependencyNode> roots = new ArrayList<>();
+            for (NodeData data : transitiveDependencies) {
+                roots.add(data.toNode(nodes));
+            }
+            return roots;
+        }
+
+        Map<String, String> getManagedVersions() {
+            return managedVersions;
+        }
+
+        Map<String, File> getArtifactFiles() {
+            Map<String, File> files = new HashMap<>();
+            artifactFiles.forEach((artifactKey, path) -> files.put(artifactKey, new File(path)));
+            return files;
+        }
+
+        @Override
+        public int compareTo(ModuleResult o) {
+            return Integer.compare(moduleIndex, o.moduleIndex);
+        }
+    }
+
+    /**
+     * Serializable copy of the parts of {@link DependencyNode} used by {@link Printer}.
+     */
+    static class NodeData implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String groupId;
+        private String artifactId;
+        private String classifier;
+        private String extension;
+        private String version;
+        private String file;
+        private boolean hasDependency;
+        private String scope;
+        private boolean optional;
+        private final List<NodeData> children = new ArrayList<>();
+
+        static NodeData of(DependencyNode node, Map<DependencyNode, NodeData> converted) {
+            NodeData data = converted.get(node);
+            if (data != null) {
+                return data;
+            }
+            data = new NodeData();
+            converted.put(node, data);
+            if (node.getArtifact() != null) {
+                data.groupId = node.getArtifact().getGroupId();
+                data.artifactId = node.getArtifact().getArtifactId();
+                data.classifier = node.getArtifact().getClassifier();
+                data.extension = node.getArtifact().getExtension();
+                data.version = node.getArtifact().getVersion();
+                data.file = node.getArtifact().getFile() != null ? node.getArtifact().getFile().getAbsolutePath() : null;
+            }
+            if (node.getDependency() != null) {
+                data.hasDependency = true;
+                data.scope = node.getDependency().getScope();
+                data.optional = node.getDependency().isOptional();
+            }
+            for (DependencyNode child : node.getChildren()) {
+                data.children.add(of(child, converted));
+            }
+            return data;
+        }
+
+        DependencyNode toNode(Map<NodeData, DependencyNode> nodes) {
+            DependencyNode node = nodes.get(this);
+            if (node != null) {
+                return node;
+            }
+            org.eclipse.aether.artifact.Artifact artifact = null;
+            if (groupId != null) {
+                artifact = new DefaultArtifact(groupId, artifactId, classifier, extension, version);
+                if (file != null) {
+                    artifact = artifact.setFile(new File(file));
+                }
+            }
+            DefaultDependencyNode defaultNode = hasDependency
+                    ? new DefaultDependencyNode(new org.eclipse.aether.graph.Dependency(artifact, scope, optional))
+                    : new DefaultDependencyNode(artifact);
+            nodes.put(this, defaultNode);
+            List<DependencyNode> childNodes = new ArrayList<>(children.size());
+            for (NodeData child : children) {
+                childNodes.add(child.toNode(nodes));
+            }
+            defaultNode.setChildren(childNodes);
+            return defaultNode;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.oracle.ee4j.dependencydump;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact binary snapshot of flattened dependencies, see -saveSnapshot and -diffSnapshot.
+ * Records are written sorted by groupId:artifactId:extension:classifier, so two snapshots
+ * are compared by a streaming merge without loading the saved one into memory.
+ */
+class Snapshot {
+
+    private static final int magic = 0x44445331; // "DDS1"
+
+    private Snapshot() {
+    }
+
+    static void write(File file, List<Record> records) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(magic);
+            for (Record record : sortUnique(records)) {
+                out.writeBoolean(true);
+                record.write(out);
+            }
+            out.writeBoolean(false);
+        }
+    }
+
+    /**
+     * Compares current records with the snapshot saved in the file.
+     */
+    static void diff(List<Record> current, File saved, DiffListener listener) throws IOException {
+        Iterator<Record> currentIterator = sortUnique(current).iterator();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(saved))))) {
+            if (in.readInt() != magic) {
+                throw new IOException("Not a dependency snapshot: " + saved.getAbsolutePath());
+            }
+            GroupReader oldGroups = new GroupReader(() -> in.readBoolean() ? Record.read(in) : null);
+            GroupReader newGroups = new GroupReader(() -> currentIterator.hasNext() ? currentIterator.next() : null);
+
+            List<Record> oldGroup = oldGroups.next();
+            List<Record> newGroup = newGroups.next();
+            while (oldGroup != null || newGroup != null) {
+                int compare = oldGroup == null ? 1 : newGroup == null ? -1
+                        : oldGroup.get(0).getKey().compareTo(newGroup.get(0).getKey());
+                if (compare < 0) {
+                    oldGroup.forEach(listener::removed);
+                    oldGroup = oldGroups.next();
+                } else if (compare > 0) {
+                    newGroup.forEach(listener::added);
+                    newGroup = newGroups.next();
+                } else {
+                    if (!versions(oldGroup).equals(versions(newGroup)) || !scopes(oldGroup).equals(scopes(newGroup))
+                            || licensesChanged(oldGroup, newGroup)) {
+                        listener.changed(oldGroup, newGroup);
+                    }
+                    oldGroup = oldGroups.next();
+                    newGroup = newGroups.next();
+                }
+            }
+        }
+    }
+
+    // the same artifact version may come from several modules, first one is kept
+    private static List<Record> sortUnique(List<Record> records) {
+        List<Record> sorted = new ArrayList<>(records);
+        sorted.sort(Comparator.comparing(Record::getKey).thenComparing(Record::getVersion));
+        List<Record> unique = new ArrayList<>(sorted.size());
+        Record previous = null;
+        for (Record record : sorted) {
+            if (previous == null || !previous.getKey().equals(record.getKey()) || !previous.getVersion().equals(record.getVersion())) {
+                unique.add(record);
+                previous = record;
+            }
+        }
+        return unique;
+    }
+
+    private static List<String> versions(List<Record> group) {
+        List<String> versions = new ArrayList<>();
+        group.forEach(record -> versions.add(record.getVersion()));
+        return versions;
+    }
+
+    // groups have the same versions, licenses are compared only when recorded on both sides
+    private static boolean licensesChanged(List<Record> oldGroup, List<Record> newGroup) {
+        for (int i = 0; i < oldGroup.size(); i++) {
+            List<String> oldLicenses = oldGroup.get(i).getLicenses();
+            List<String> newLicenses = newGroup.get(i).getLicenses();
+            if (!oldLicenses.isEmpty() && !newLicenses.isEmpty() && !oldLicenses.equals(newLicenses)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> scopes(List<Record> group) {
+        List<String> scopes = new ArrayList<>();
+        group.forEach(record -> scopes.add(record.getScope()));
+        return scopes;
+    }
+
+    interface DiffListener {
+        void added(Record record);
+
+        void removed(Record record);
+
+        /**
+         * Artifact present in both with different versions, scopes or licenses, all versions of each side are passed.
+         */
+        void changed(List<Record> oldRecords, List<Record> newRecords);
+    }
+
+    private interface RecordSource {
+        Record next() throws IOException;
+    }
+
+    /**
+     * Reads consecutive records with the same key from a sorted source.
+     */
+    private static class GroupReader {
+        private final RecordSource source;
+        private Record pending;
+
+        private GroupReader(RecordSource source) throws IOException {
+            this.source = source;
+            this.pending = source.next();
+        }
+
+        private List<Record> next() throws IOException {
+            if (pending == null) {
+                return null;
+            }
+            List<Record> group = new ArrayList<>();
+            group.add(pending);
+            while ((pending = source.next()) != null && pending.getKey().equals(group.get(0).getKey())) {
+                group.add(pending);
+            }
+            return group;
+        }
+    }
+
+    static final class Record {
+        private final String groupId;
+        private final String artifactId;
+        private final String extension;
+        private final String classifier;
+        private final String version;
+        private final String scope;
+        private final List<String> licenses;
+        private final String key;
+
+        Record(String groupId, String artifactId, String extension, String classifier, String version, String scope, List<String> licenses) {
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.extension = extension != null ? extension : "jar";
+            this.classifier = classifier != null ? classifier : "";
+            this.version = version;
+            this.scope = scope != null ? scope : "";
+            this.licenses = licenses;
+            this.key = groupId + ":" + artifactId + ":" + this.extension + (this.classifier.isEmpty() ? "" : ":" + this.classifier);
+        }
+
+        private void write(DataOutput out) throws IOException {
+            out.writeUTF(groupId);
+            out.writeUTF(artifactId);
+            out.writeUTF(extension);
+            out.writeUTF(classifier);
+            out.writeUTF(version);
+            out.writeUTF(scope);
+            out.writeShort(licenses.size());
+            for (String license : licenses) {
+                out.writeUTF(license);
+            }
+        }
+
+        private static Record read(DataInput in) throws IOException {
+            String groupId = in.readUTF();
+            String artifactId = in.readUTF();
+            String extension = in.readUTF();
+            String classifier = in.readUTF();
+            String version = in.readUTF();
+            String scope = in.readUTF();
+            int licenseCount = in.readUnsignedShort();
+            List<String> licenses = new ArrayList<>(licenseCount);
+            for (int i = 0; i < licenseCount; i++) {
+                licenses.add(in.readUTF());
+            }
+            return new Record(groupId, artifactId, extension, classifier, version, scope, licenses);
+        }
+
+        /**
+         * groupId:artifactId:extension[:classifier]
+         */
+        String getKey() {
+            return key;
+        }
+
+        String getVersion() {
+            return version;
+        }
+
+        String getScope() {
+            return scope;
+        }
+
+        List<String> getLicenses() {
+            return licenses;
+        }
+    }
+}
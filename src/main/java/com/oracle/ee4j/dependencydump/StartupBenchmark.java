@@ -0,0 +1,82 @@
+package com.oracle.ee4j.dependencydump;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Measures time to first output and total run time of the dump in fresh JVMs,
+ * with default class data sharing and with the AppCDS archive written by -trainCds when it exists.
+ * <p>
+ * Usage: StartupBenchmark [-iterations N] &lt;dependency-dump arguments&gt;
+ */
+public class StartupBenchmark {
+
+    private static final Logger logger = Logger.getLogger("benchmark");
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.util.logging.SimpleFormatter.format", "%5$s%6$s%n");
+
+        int iterations = 5;
+        List<String> dumpArgs = new ArrayList<>(Arrays.asList(args));
+        if (dumpArgs.size() > 1 && dumpArgs.get(0).equals("-iterations")) {
+            iterations = Integer.parseInt(dumpArgs.get(1));
+            dumpArgs = dumpArgs.subList(2, dumpArgs.size());
+        }
+        if (dumpArgs.isEmpty()) {
+            System.err.println("Usage: StartupBenchmark [-iterations N] <dependency-dump arguments>");
+            return;
+        }
+
+        measure("default CDS", new ArrayList<>(), dumpArgs, iterations);
+
+        File archive = CdsArchive.getArchiveFile();
+        if (archive.isFile()) {
+            measure("AppCDS", Arrays.asList("-XX:SharedArchiveFile=" + archive.getAbsolutePath(), "-Xshare:auto"), dumpArgs, iterations);
+        } else {
+            logger.info("No AppCDS archive " + archive.getAbsolutePath() + ", run with -trainCds first to compare.");
+        }
+    }
+
+    private static void measure(String label, List<String> jvmArgs, List<String> dumpArgs, int iterations) throws IOException, InterruptedException {
+        long firstOutputTotal = 0;
+        long wallTotal = 0;
+        for (int i = 1; i <= iterations; i++) {
+            List<String> command = new ArrayList<>();
+            command.add(CdsArchive.javaExecutable());
+            command.addAll(jvmArgs);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(Main.class.getName());
+            command.addAll(dumpArgs);
+
+            long started = System.nanoTime();
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            long firstOutput = -1;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                while (reader.readLine() != null) {
+                    if (firstOutput < 0) {
+                        firstOutput = System.nanoTime() - started;
+                    }
+                }
+            }
+            int exitCode = process.waitFor();
+            long wall = System.nanoTime() - started;
+            if (exitCode != 0) {
+                logger.warning(label + " run " + i + " exited with " + exitCode);
+            }
+
+            firstOutputTotal += Math.max(firstOutput, 0);
+            wallTotal += wall;
+            logger.info(String.format("%s run %d: first output %d ms, total %d ms", label, i, firstOutput / 1_000_000, wall / 1_000_000));
+        }
+        logger.info(String.format("%s average: first output %d ms, total %d ms",
+                label, firstOutputTotal / iterations / 1_000_000, wallTotal / iterations / 1_000_000));
+    }
+}
@@ -4,6 +4,12 @@ package com.oracle.ee4j.dependencydump;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.building.*;
+import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.ArtifactType;
+import org.eclipse.aether.artifact.ArtifactTypeRegistry;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.artifact.DefaultArtifactType;
 import org.eclipse.aether.graph.DependencyNode;
 
 public class Util {
@@ -12,12 +18,36 @@ public class Util {
         return dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + dependency.getVersion();
     }
 
+    public static String toArtifactId(Artifact artifact) {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+    }
+
     public static String toArtifactId(DependencyNode child) {
         return child.getArtifact().getGroupId() +":"+ child.getArtifact().getArtifactId() + ":"+  child.getArtifact().getExtension() +":"+ child.getArtifact().getVersion();
     }
 
+    /**
+     * groupId:artifactId:extension[:classifier]:baseVersion, identifies the resolved file of an artifact.
+     */
+    public static String toArtifactFileKey(Artifact artifact) {
+        String classifier = artifact.getClassifier();
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getExtension()
+                + (classifier == null || classifier.isEmpty() ? "" : ":" + classifier) + ":" + artifact.getBaseVersion();
+    }
+
+    /**
+     * Artifact of the dependency with extension and classifier mapped from its type, as maven does for transitive dependencies.
+     */
+    public static Artifact toArtifact(Dependency dependency) {
+        ArtifactType type = ArtifactTypeHolder.artifactTypes.get(dependency.getType());
+        if (type == null) {
+            type = new DefaultArtifactType(dependency.getType());
+        }
+        return new DefaultArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getClassifier(), null, dependency.getVersion(), type);
+    }
+
     public static Model getModel(DefaultModelBuildingRequest modelBuildingRequest) {
-        ModelBuilder modelBuilder = new DefaultModelBuilderFactory().newInstance();
+        ModelBuilder modelBuilder = ModelBuilderHolder.modelBuilder;
         ModelBuildingResult modelBuildingResult;
         try {
             modelBuildingResult = modelBuilder.build(modelBuildingRequest);
@@ -27,4 +57,15 @@ public class Util {
 
         return modelBuildingResult.getEffectiveModel();
     }
+
+    /**
+     * Model builder is stateless, created on first use and shared by all requests.
+     */
+    private static class ModelBuilderHolder {
+        private static final ModelBuilder modelBuilder = new DefaultModelBuilderFactory().newInstance();
+    }
+
+    private static class ArtifactTypeHolder {
+        private static final ArtifactTypeRegistry artifactTypes = MavenRepositorySystemUtils.newSession().getArtifactTypeRegistry();
+    }
 }
@@ -0,0 +1,36 @@
+package com.oracle.ee4j.dependencydump;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConflictAnalyzerTest {
+
+    @Test
+    public void equivalentVersionsAreReportedSeparately() {
+        ConflictAnalyzer analyzer = new ConflictAnalyzer((parent, child) -> false);
+        analyzer.addRoot("m1", Collections.emptyMap(), node("g:a:1", node("g:x:1.0")));
+        analyzer.addRoot("m2", Collections.emptyMap(), node("g:b:1", node("g:x:1.0.Final")));
+
+        List<ConflictAnalyzer.Conflict> conflicts = analyzer.getConflicts();
+        assertEquals(1, conflicts.size());
+        ConflictAnalyzer.Conflict conflict = conflicts.get(0);
+        assertEquals("g:x", conflict.getKey());
+        assertEquals(Arrays.asList("1.0", "1.0.Final"), new ArrayList<>(conflict.getVersions().keySet()));
+        assertEquals("g:b:1 -> g:x:1.0.Final", conflict.getVersions().get("1.0.Final").get("m2"));
+        assertEquals("1.0", conflict.getMediatedVersions().get("m1"));
+        assertEquals("1.0.Final", conflict.getMediatedVersions().get("m2"));
+    }
+
+    private static DefaultDependencyNode node(String artifact, DependencyNode... children) {
+        DefaultDependencyNode node = new DefaultDependencyNode(new Dependency(new DefaultArtifact(artifact), "compile"));
+        node.setChildren(new ArrayList<>(Arrays.asList(children)));
+        return node;
+    }
+}
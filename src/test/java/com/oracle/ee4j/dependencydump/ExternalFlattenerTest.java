@@ -0,0 +1,125 @@
+package com.oracle.ee4j.dependencydump;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExternalFlattenerTest {
+
+    private static final long unlimited = 1024L * 1024L * 1024L;
+
+    @Test
+    public void spilledArtifactIsNotExpandedAgain() throws IOException {
+        DefaultDependencyNode a = node("a:1", "compile", false, node("x:1", "compile", false, node("y:1", "compile", false)));
+        DefaultDependencyNode b = node("b:1", "compile", false, node("x:1", "compile", false, node("y:2", "compile", false)));
+        List<DependencyNode> roots = Arrays.asList(a, b);
+
+        List<String> expected = Arrays.asList("g:a:jar:1:compile", "g:b:jar:1:compile", "g:x:jar:1:compile", "g:y:jar:1:compile");
+        assertEquals(expected, flatten(roots, unlimited));
+        assertEquals(expected, flatten(roots, 1));
+    }
+
+    @Test
+    public void outputDoesNotDependOnMemoryBudget() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            List<DependencyNode> roots = randomGraphs(random);
+            List<String> inMemory = flattenInMemory(roots);
+            assertEquals(inMemory, flatten(roots, unlimited));
+            assertEquals(inMemory, flatten(roots, 1));
+            assertEquals(inMemory, flatten(roots, 2000));
+        }
+    }
+
+    @Test
+    public void runsAreMergedWithBoundedFanIn() throws IOException {
+        List<DependencyNode> roots = randomGraphs(new Random(7));
+        List<String> inMemory = flattenInMemory(roots);
+        assertEquals(inMemory, flatten(roots, 1, 2));
+        assertEquals(inMemory, flatten(roots, 1, 3));
+        assertEquals(inMemory, flatten(roots, 500, 2));
+    }
+
+    private static List<String> flatten(List<DependencyNode> roots, long memoryBudget) throws IOException {
+        return flatten(roots, memoryBudget, 64);
+    }
+
+    private static List<String> flatten(List<DependencyNode> roots, long memoryBudget, int maxFanIn) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (ExternalFlattener flattener = new ExternalFlattener(memoryBudget, (parent, child) -> false, maxFanIn)) {
+            for (DependencyNode root : roots) {
+                flattener.addRoot(root);
+            }
+            flattener.forEach(record -> result.add(record.getKey() + ":" + record.getScope() + (record.isOptional() ? ":optional" : "")));
+            assertTrue(flattener.getRunCount() <= maxFanIn);
+        }
+        return result;
+    }
+
+    // same as Printer flattening without exclusions
+    private static List<String> flattenInMemory(List<DependencyNode> roots) {
+        Map<String, DependencyNode> merged = new TreeMap<>();
+        for (DependencyNode root : roots) {
+            flattenDependencyTree(merged, root);
+        }
+        List<String> result = new ArrayList<>();
+        merged.forEach((key, node) -> result.add(key + ":" + node.getDependency().getScope() + (node.getDependency().isOptional() ? ":optional" : "")));
+        return result;
+    }
+
+    private static void flattenDependencyTree(Map<String, DependencyNode> merged, DependencyNode node) {
+        if (node.getDependency().isOptional()) {
+            return;
+        }
+        merged.put(Util.toArtifactId(node), node);
+        for (DependencyNode child : node.getChildren()) {
+            String childId = Util.toArtifactId(child);
+            if (merged.containsKey(childId)) {
+                continue;
+            }
+            merged.put(childId, child);
+            flattenDependencyTree(merged, child);
+        }
+    }
+
+    private static List<DependencyNode> randomGraphs(Random random) {
+        List<DependencyNode> shared = new ArrayList<>();
+        List<DependencyNode> roots = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            roots.add(randomNode(random, shared, 0));
+        }
+        return roots;
+    }
+
+    private static DependencyNode randomNode(Random random, List<DependencyNode> shared, int depth) {
+        // graphs may reuse already created nodes
+        if (depth > 0 && !shared.isEmpty() && random.nextInt(5) == 0) {
+            return shared.get(random.nextInt(shared.size()));
+        }
+        String[] scopes = {"compile", "runtime", "test"};
+        DefaultDependencyNode node = node("a" + random.nextInt(30) + ":" + (1 + random.nextInt(3)),
+                scopes[random.nextInt(scopes.length)], depth > 0 && random.nextInt(8) == 0);
+        List<DependencyNode> children = new ArrayList<>();
+        int childCount = depth < 4 ? random.nextInt(4) : 0;
+        for (int i = 0; i < childCount; i++) {
+            children.add(randomNode(random, shared, depth + 1));
+        }
+        node.setChildren(children);
+        shared.add(node);
+        return node;
+    }
+
+    private static DefaultDependencyNode node(String artifact, String scope, boolean optional, DependencyNode... children) {
+        DefaultDependencyNode node = new DefaultDependencyNode(new Dependency(new DefaultArtifact("g:" + artifact), scope, optional));
+        node.setChildren(new ArrayList<>(Arrays.asList(children)));
+        return node;
+    }
+}
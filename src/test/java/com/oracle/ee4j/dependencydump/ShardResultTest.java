@@ -0,0 +1,112 @@
+package com.oracle.ee4j.dependencydump;
+
+import org.apache.maven.model.Dependency;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.DependencyNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ShardResultTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void modulesAreReadInReactorOrder() throws IOException {
+        File shardDir = temporaryFolder.newFolder();
+        ShardResult shard0 = new ShardResult(0, 2, "run-1");
+        addModule(shard0, 0, "m0");
+        addModule(shard0, 2, "m2");
+        shard0.write(shardDir);
+        ShardResult shard1 = new ShardResult(1, 2, "run-1");
+        addModule(shard1, 1, "m1");
+        shard1.write(shardDir);
+
+        List<ShardResult> shards = ShardResult.readAll(shardDir, "run-1");
+        assertEquals(2, shards.size());
+        assertEquals(new HashSet<>(Arrays.asList(project("m0"), project("m2"))), shards.get(0).getProjectArtifacts());
+
+        List<String> modules = new ArrayList<>();
+        Iterator<ShardResult.ModuleResult> iterator = ShardResult.readModules(shards);
+        while (iterator.hasNext()) {
+            ShardResult.ModuleResult module = iterator.next();
+            String name = module.getProjectArtifact().getVersionId();
+            modules.add(module.getModuleIndex() + ":" + name);
+            // graphs of every module are read from the position of that module in its file
+            assertEquals("g:" + name + "-dep:jar:1", Util.toArtifactId(module.getTransitiveDependencies().get(0)));
+            assertEquals("g", module.getDirectDependencies().get(0).getGroupId());
+            assertEquals(name + "-dep", module.getDirectDependencies().get(0).getArtifactId());
+            assertEquals("1", module.getManagedVersions().get("g:" + name + "-managed"));
+        }
+        assertEquals(Arrays.asList("0:m0", "1:m1", "2:m2"), modules);
+    }
+
+    @Test
+    public void sharedNodesStaySharedWithinGraph() throws IOException {
+        File shardDir = temporaryFolder.newFolder();
+        DefaultDependencyNode shared = node("g:shared:1", "runtime", false);
+        DefaultDependencyNode root = node("g:root:1", "compile", false,
+                node("g:x:jar:tests:1", "compile", false, shared),
+                node("g:y:1", "test", true, shared));
+        ShardResult shard = new ShardResult(0, 1, "run-1");
+        shard.addModule(0, project("m0")).addTransitiveDependency(root);
+        shard.write(shardDir);
+
+        Iterator<ShardResult.ModuleResult> iterator = ShardResult.readModules(ShardResult.readAll(shardDir, null));
+        DependencyNode read = iterator.next().getTransitiveDependencies().get(0);
+        assertFalse(iterator.hasNext());
+
+        DependencyNode x = read.getChildren().get(0);
+        DependencyNode y = read.getChildren().get(1);
+        assertEquals("g:x:jar:tests:1", Util.toArtifactFileKey(x.getArtifact()));
+        assertEquals("test", y.getDependency().getScope());
+        assertTrue(y.getDependency().isOptional());
+        assertSame(x.getChildren().get(0), y.getChildren().get(0));
+        assertEquals("runtime", x.getChildren().get(0).getDependency().getScope());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void resultsOfDifferentRunsAreRejected() throws IOException {
+        File shardDir = temporaryFolder.newFolder();
+        new ShardResult(0, 2, "run-1").write(shardDir);
+        new ShardResult(1, 2, "run-2").write(shardDir);
+        ShardResult.readAll(shardDir, null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void resultsOfOtherRunThanExpectedAreRejected() throws IOException {
+        File shardDir = temporaryFolder.newFolder();
+        new ShardResult(0, 1, "run-1").write(shardDir);
+        ShardResult.readAll(shardDir, "run-2");
+    }
+
+    private static void addModule(ShardResult shard, int moduleIndex, String name) {
+        shard.addProjectArtifact(project(name));
+        ShardResult.ModuleResult module = shard.addModule(moduleIndex, project(name));
+        Dependency dependency = new Dependency();
+        dependency.setGroupId("g");
+        dependency.setArtifactId(name + "-dep");
+        dependency.setVersion("1");
+        module.addDirectDependency(dependency);
+        module.addTransitiveDependency(node("g:" + name + "-dep:1", "compile", false));
+        module.getManagedVersions().put("g:" + name + "-managed", "1");
+    }
+
+    private static ProjectArtifact project(String name) {
+        return new ProjectArtifact("g", name, "1");
+    }
+
+    private static DefaultDependencyNode node(String artifact, String scope, boolean optional, DependencyNode... children) {
+        DefaultDependencyNode node = new DefaultDependencyNode(new org.eclipse.aether.graph.Dependency(new DefaultArtifact(artifact), scope, optional));
+        node.setChildren(new ArrayList<>(Arrays.asList(children)));
+        return node;
+    }
+}
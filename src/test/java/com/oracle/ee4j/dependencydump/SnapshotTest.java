@@ -0,0 +1,100 @@
+package com.oracle.ee4j.dependencydump;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class SnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void sameRecordsHaveNoChanges() throws IOException {
+        List<Snapshot.Record> records = Arrays.asList(record("a", "", "1", "compile"), record("b", "", "2", "test"));
+        assertEquals(Collections.emptyList(), diff(records, records));
+    }
+
+    @Test
+    public void addedAndRemovedArtifacts() throws IOException {
+        List<String> changes = diff(
+                Arrays.asList(record("a", "", "1", "compile"), record("c", "", "1", "compile")),
+                Arrays.asList(record("b", "", "1", "runtime"), record("c", "", "1", "compile"), record("d", "", "1", "compile")));
+        assertEquals(Arrays.asList("removed g:a:jar 1:compile", "added g:b:jar 1:runtime", "added g:d:jar 1:compile"), changes);
+    }
+
+    @Test
+    public void changedVersionAndScope() throws IOException {
+        List<String> changes = diff(
+                Arrays.asList(record("a", "", "1", "compile"), record("b", "", "1", "compile")),
+                Arrays.asList(record("a", "", "2", "compile"), record("b", "", "1", "test")));
+        assertEquals(Arrays.asList("changed g:a:jar [1:compile] -> [2:compile]", "changed g:b:jar [1:compile] -> [1:test]"), changes);
+    }
+
+    @Test
+    public void multipleVersionsAreComparedAsGroup() throws IOException {
+        List<String> changes = diff(
+                Arrays.asList(record("a", "", "3.5", "compile"), record("b", "", "1", "compile"), record("b", "", "2", "compile")),
+                Arrays.asList(record("a", "", "3.5", "compile"), record("a", "", "3.4", "compile"),
+                        record("b", "", "2", "compile"), record("b", "", "1", "compile"),
+                        // the same version from another module
+                        record("b", "", "1", "compile")));
+        assertEquals(Collections.singletonList("changed g:a:jar [3.5:compile] -> [3.4:compile,3.5:compile]"), changes);
+    }
+
+    @Test
+    public void classifiedArtifactHasOwnKey() throws IOException {
+        List<String> changes = diff(
+                Arrays.asList(record("a", "", "1", "compile"), record("a", "tests", "1", "test")),
+                Arrays.asList(record("a", "", "2", "compile"), record("a", "tests", "1", "test"), record("b", "tests", "1", "test")));
+        assertEquals(Arrays.asList("changed g:a:jar [1:compile] -> [2:compile]", "added g:b:jar:tests 1:test"), changes);
+    }
+
+    @Test
+    public void licensesAreComparedWhenRecordedOnBothSides() throws IOException {
+        List<String> changes = diff(
+                Arrays.asList(record("a", "", "1", "compile", "EPL-1.0"), record("b", "", "1", "compile", "EPL-1.0"),
+                        record("c", "", "1", "compile")),
+                Arrays.asList(record("a", "", "1", "compile", "EPL-2.0"), record("b", "", "1", "compile"),
+                        record("c", "", "1", "compile", "MIT")));
+        assertEquals(Collections.singletonList("changed g:a:jar [1:compile] -> [1:compile]"), changes);
+    }
+
+    private List<String> diff(List<Snapshot.Record> saved, List<Snapshot.Record> current) throws IOException {
+        File file = temporaryFolder.newFile();
+        Snapshot.write(file, saved);
+        List<String> changes = new ArrayList<>();
+        Snapshot.diff(current, file, new Snapshot.DiffListener() {
+            @Override
+            public void added(Snapshot.Record record) {
+                changes.add("added " + record.getKey() + " " + record.getVersion() + ":" + record.getScope());
+            }
+
+            @Override
+            public void removed(Snapshot.Record record) {
+                changes.add("removed " + record.getKey() + " " + record.getVersion() + ":" + record.getScope());
+            }
+
+            @Override
+            public void changed(List<Snapshot.Record> oldRecords, List<Snapshot.Record> newRecords) {
+                changes.add("changed " + newRecords.get(0).getKey() + " " + versions(oldRecords) + " -> " + versions(newRecords));
+            }
+        });
+        return changes;
+    }
+
+    private static String versions(List<Snapshot.Record> records) {
+        return records.stream().map(record -> record.getVersion() + ":" + record.getScope()).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static Snapshot.Record record(String artifactId, String classifier, String version, String scope, String... licenses) {
+        return new Snapshot.Record("g", artifactId, "jar", classifier, version, scope, Arrays.asList(licenses));
+    }
+}